@@ -1,3 +1,4 @@
+import gg.jte.ContentType
 import org.gradle.api.tasks.testing.logging.TestExceptionFormat
 import org.gradle.api.tasks.testing.logging.TestLogEvent
 
@@ -8,6 +9,8 @@ plugins {
     alias(libs.plugins.benManes)
     alias(libs.plugins.sonarqube)
     alias(libs.plugins.shadow)
+    alias(libs.plugins.jmh)
+    alias(libs.plugins.jte)
 }
 
 group = "hexlet.code"
@@ -30,8 +33,8 @@ dependencies {
     implementation(libs.javalin)
     implementation(libs.javalinBundle)
     implementation(libs.javalinRendering)
-    implementation(libs.unirest)
     implementation(libs.jsoup)
+    implementation(libs.jacksonDatabind)
 
     testImplementation(libs.assertjCore)
     testImplementation(platform(libs.junitBom))
@@ -49,6 +52,38 @@ dependencies {
     testAnnotationProcessor(libs.lombok)
 }
 
+// Templates are also compiled into the app, so APP_ENV=production can skip compiling them at runtime.
+jte {
+    sourceDirectory.set(file("src/main/resources/templates").toPath())
+    contentType.set(ContentType.Html)
+    generate()
+}
+
+tasks.checkstyleMain {
+    exclude("gg/jte/generated/**")
+}
+
+// Load-test harness: the app on H2 against local MockWebServer targets, see hexlet.code.loadtest.LoadTest.
+val loadTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[loadTest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadTest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+dependencies {
+    "loadTestImplementation"(libs.mockWebserver)
+    "loadTestImplementation"(libs.okhttp)
+}
+
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs the load-test harness and prints throughput, latency percentiles and pool usage."
+    classpath = loadTest.runtimeClasspath
+    mainClass.set("hexlet.code.loadtest.LoadTest")
+}
+
 tasks.test {
     useJUnitPlatform()
     testLogging {
@@ -63,6 +98,22 @@ tasks.jacocoTestReport {
     dependsOn(tasks.test)
 }
 
+// ./gradlew jmh -Pjmh.includes=HeadExtractor runs a subset; results land in build/results/jmh/results.json.
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    (findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+}
+
+// JMH generates subclasses of the benchmark classes, which therefore cannot follow DesignForExtension.
+tasks.named("checkstyleJmh") {
+    enabled = false
+}
+
 tasks.jacocoTestReport { reports { xml.required.set(true) } }
 
 sonar {
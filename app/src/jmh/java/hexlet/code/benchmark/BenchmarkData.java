@@ -0,0 +1,99 @@
+package hexlet.code.benchmark;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+import hexlet.code.dto.UrlsPage;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.Migrations;
+
+// Synthetic inputs shared by the benchmarks. Everything is deterministic so runs can be compared.
+final class BenchmarkData {
+    private static final String PARAGRAPH = "<p>Lorem ipsum dolor sit amet, <a href=\"/next\">consectetur</a> "
+            + "adipiscing elit, sed do <b>eiusmod</b> tempor incididunt ut labore et dolore magna aliqua.</p>\n";
+
+    private BenchmarkData() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // A page of roughly the given size whose h1 comes last, so extraction has to read all of it.
+    static String html(int kilobytes) {
+        var html = new StringBuilder(kilobytes * 1024 + 512);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>Benchmark page</title>")
+                .append("<meta name=\"description\" content=\"Synthetic page for benchmarks\">")
+                .append("<link rel=\"stylesheet\" href=\"/style.css\"></head><body>\n");
+        while (html.length() < kilobytes * 1024) {
+            html.append(PARAGRAPH);
+        }
+        return html.append("<h1>Heading <span>at the end</span></h1></body></html>").toString();
+    }
+
+    // A fresh in-memory database with the given number of checks spread over a tenth as many urls.
+    static HikariDataSource database(int checks) throws IOException, SQLException {
+        var config = new HikariConfig();
+        config.setJdbcUrl("jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        var dataSource = new HikariDataSource(config);
+        Migrations.migrate(dataSource);
+        var urls = Math.max(1, checks / 10);
+        try (var conn = dataSource.getConnection()) {
+            try (var stmt = conn.prepareStatement("INSERT INTO urls (name, created_at) "
+                    + "SELECT 'https://site' || X || '.example', CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)")) {
+                stmt.setInt(1, urls);
+                stmt.executeUpdate();
+            }
+            try (var stmt = conn.prepareStatement("INSERT INTO url_checks "
+                    + "(url_id, status_code, h1, title, description, created_at) "
+                    + "SELECT MOD(X - 1, ?) + 1, 200, 'Heading ' || X, 'Title ' || X, 'Description ' || X, "
+                    + "CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, ?)")) {
+                stmt.setInt(1, urls);
+                stmt.setInt(2, checks);
+                stmt.executeUpdate();
+            }
+            try (var stmt = conn.prepareStatement("UPDATE urls SET "
+                    + "latest_check_id = (SELECT MAX(c.id) FROM url_checks c WHERE c.url_id = urls.id), "
+                    + "last_checked_at = CURRENT_TIMESTAMP")) {
+                stmt.executeUpdate();
+            }
+        }
+        BaseRepository.setDataSource(dataSource);
+        return dataSource;
+    }
+
+    static List<Long> ids(long from, int count) {
+        var ids = new ArrayList<Long>(count);
+        for (var id = from; id < from + count; id++) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    static UrlsPage urlsPage(int size) {
+        var urls = new ArrayList<Url>(size);
+        var checks = new HashMap<Long, UrlCheck>();
+        var now = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (var id = 1L; id <= size; id++) {
+            var url = new Url("https://site" + id + ".example");
+            url.setId(id);
+            url.setCreatedAt(now);
+            urls.add(url);
+            // Every other url has been checked, like a list where checks lag behind additions.
+            if (id % 2 == 0) {
+                var check = new UrlCheck(200, "Title " + id, "Heading " + id, "Description " + id, id);
+                check.setId(id);
+                check.setCreatedAt(now);
+                checks.put(id, check);
+            }
+        }
+        return new UrlsPage(urls, checks, null, (long) size, size);
+    }
+}
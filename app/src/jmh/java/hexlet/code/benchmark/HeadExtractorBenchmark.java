@@ -0,0 +1,36 @@
+package hexlet.code.benchmark;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import hexlet.code.util.HeadExtractor;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HeadExtractorBenchmark {
+    @Param({"4", "64", "1024"})
+    public int kilobytes;
+
+    private String html;
+
+    @Setup
+    public void setUp() {
+        html = BenchmarkData.html(kilobytes);
+    }
+
+    @Benchmark
+    public HeadExtractor.Fields extract() throws IOException {
+        return HeadExtractor.extract(new StringReader(html));
+    }
+}
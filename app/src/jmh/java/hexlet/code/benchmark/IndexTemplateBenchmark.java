@@ -0,0 +1,47 @@
+package hexlet.code.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import gg.jte.ContentType;
+import gg.jte.TemplateEngine;
+import gg.jte.output.StringOutput;
+import gg.jte.resolve.ResourceCodeResolver;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IndexTemplateBenchmark {
+    @Param({"20", "100", "1000"})
+    public int pageSize;
+
+    private TemplateEngine templateEngine;
+    private Map<String, Object> model;
+
+    @Setup
+    public void setUp() {
+        var codeResolver = new ResourceCodeResolver("templates", IndexTemplateBenchmark.class.getClassLoader());
+        templateEngine = TemplateEngine.create(codeResolver, ContentType.Html);
+        model = new HashMap<>();
+        model.put("page", BenchmarkData.urlsPage(pageSize));
+        // The first render compiles the template, keep that out of the measurement.
+        render();
+    }
+
+    @Benchmark
+    public String render() {
+        var output = new StringOutput();
+        templateEngine.render("urls/index.jte", model, output);
+        return output.toString();
+    }
+}
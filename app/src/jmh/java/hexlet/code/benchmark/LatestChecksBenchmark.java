@@ -0,0 +1,53 @@
+package hexlet.code.benchmark;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.UrlCheckRepository;
+
+// Latest checks for one index page out of tables of growing size; the lookup should stay flat.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LatestChecksBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000", "100000", "1000000"})
+    public int checks;
+
+    private HikariDataSource dataSource;
+    private List<Long> pageIds;
+
+    @Setup
+    public void setUp() throws IOException, SQLException {
+        dataSource = BenchmarkData.database(checks);
+        // A page from the middle of the table rather than the start.
+        pageIds = BenchmarkData.ids(checks / 20, PAGE_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Map<Long, UrlCheck> latestChecksForPage() throws SQLException {
+        return UrlCheckRepository.getLatestChecks(pageIds);
+    }
+}
@@ -0,0 +1,31 @@
+package hexlet.code.benchmark;
+
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import hexlet.code.util.UrlNormalizer;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UrlNormalizerBenchmark {
+    @Param({
+        "https://example.com",
+        "  HTTPS://Sub.Example.COM:8443/some/long/path/to/a/page.html?query=value&other=1#fragment  "
+    })
+    public String input;
+
+    @Benchmark
+    public String normalize() throws URISyntaxException, MalformedURLException {
+        return UrlNormalizer.normalize(input);
+    }
+}
@@ -0,0 +1,240 @@
+package hexlet.code.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hexlet.code.App;
+import hexlet.code.model.Url;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.service.UrlCheckService;
+import hexlet.code.util.Env;
+import hexlet.code.util.NamedRoutes;
+import io.javalin.Javalin;
+
+// Runs the app on H2 against a fleet of local target sites and drives a weighted mix of requests at it.
+// Everything is configured through environment variables, see the constants below; `make load-test` runs it.
+public final class LoadTest {
+    private static final int DURATION_SECONDS = Env.getInt("LOAD_DURATION_SECONDS", 30);
+    private static final int CLIENTS = Env.getInt("LOAD_CLIENTS", 32);
+    private static final int SEED_URLS = Env.getInt("LOAD_SEED_URLS", 1000);
+    private static final int TARGETS = Env.getInt("LOAD_TARGETS", 8);
+    private static final int TARGET_LATENCY_MS = Env.getInt("LOAD_TARGET_LATENCY_MS", 50);
+    private static final int TARGET_BODY_KB = Env.getInt("LOAD_TARGET_BODY_KB", 32);
+    private static final int TARGET_ERROR_PERCENT = Env.getInt("LOAD_TARGET_ERROR_PERCENT", 5);
+    private static final int POOL_SAMPLE_MS = 50;
+    private static final int CLIENT_ERROR = 400;
+    private static final AtomicLong CREATED = new AtomicLong();
+
+    private enum Operation {
+        CREATE(Env.getInt("LOAD_MIX_CREATE", 5)),
+        INDEX(Env.getInt("LOAD_MIX_INDEX", 40)),
+        SHOW(Env.getInt("LOAD_MIX_SHOW", 40)),
+        CHECK(Env.getInt("LOAD_MIX_CHECK", 15));
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+
+        static Operation pick() {
+            var total = 0;
+            for (var operation : values()) {
+                total += operation.weight;
+            }
+            var roll = ThreadLocalRandom.current().nextInt(total);
+            for (var operation : values()) {
+                roll -= operation.weight;
+                if (roll < 0) {
+                    return operation;
+                }
+            }
+            return INDEX;
+        }
+    }
+
+    private LoadTest() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (var targets = new TargetFleet(TARGETS, TARGET_LATENCY_MS, TARGET_BODY_KB, TARGET_ERROR_PERCENT)) {
+            var app = App.getApp().start(0);
+            try {
+                var targetIds = seed(targets.urls());
+                run(app, targetIds);
+            } finally {
+                app.stop();
+            }
+        }
+    }
+
+    private static List<Long> seed(List<String> targetUrls) throws SQLException {
+        var targetIds = new ArrayList<Long>();
+        for (var name : targetUrls) {
+            var url = new Url(name.replaceAll("/$", ""));
+            UrlRepository.save(url);
+            targetIds.add(url.getId());
+        }
+        for (var i = 0; i < SEED_URLS; i++) {
+            UrlRepository.save(new Url("https://seed-" + i + ".example"));
+        }
+        return targetIds;
+    }
+
+    private static void run(Javalin app, List<Long> targetIds) throws Exception {
+        var base = "http://localhost:" + app.port();
+        var maxId = UrlRepository.count();
+        var sampler = new PoolSampler();
+        var samplerExecutor = Executors.newSingleThreadScheduledExecutor();
+        samplerExecutor.scheduleAtFixedRate(sampler::sample, 0, POOL_SAMPLE_MS, TimeUnit.MILLISECONDS);
+
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+        var results = new ArrayList<Map<Operation, Samples>>();
+        var workers = new ArrayList<Thread>();
+        try (var client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build()) {
+            for (var i = 0; i < CLIENTS; i++) {
+                var samples = new EnumMap<Operation, Samples>(Operation.class);
+                results.add(samples);
+                workers.add(Thread.ofVirtual().start(() -> drive(client, base, maxId, targetIds, deadline, samples)));
+            }
+            for (var worker : workers) {
+                worker.join();
+            }
+        }
+        var checksStart = System.nanoTime();
+        while (UrlCheckService.getPendingCount() > 0
+                && System.nanoTime() - checksStart < TimeUnit.SECONDS.toNanos(DURATION_SECONDS)) {
+            Thread.sleep(POOL_SAMPLE_MS);
+        }
+        samplerExecutor.shutdownNow();
+        report(results, sampler);
+    }
+
+    private static void drive(HttpClient client, String base, long maxId, List<Long> targetIds, long deadline,
+                              Map<Operation, Samples> samples) {
+        var random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            var operation = Operation.pick();
+            var request = switch (operation) {
+                case CREATE -> post(base + NamedRoutes.urlsPath(),
+                        "url=https://load-" + CREATED.incrementAndGet() + ".example");
+                case INDEX -> get(base + (random.nextBoolean()
+                        ? NamedRoutes.urlsPath()
+                        : NamedRoutes.urlsAfterPath(random.nextLong(maxId), 20)));
+                case SHOW -> get(base + NamedRoutes.urlPath(random.nextLong(1, maxId + 1)));
+                case CHECK -> post(base + NamedRoutes.checkPath(targetIds.get(random.nextInt(targetIds.size()))),
+                        "");
+            };
+            var start = System.nanoTime();
+            boolean failed;
+            try {
+                var response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                failed = response.statusCode() >= CLIENT_ERROR;
+            } catch (IOException e) {
+                failed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            samples.computeIfAbsent(operation, key -> new Samples()).add(System.nanoTime() - start, failed);
+        }
+    }
+
+    private static HttpRequest get(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).GET().build();
+    }
+
+    private static HttpRequest post(String uri, String form) {
+        return HttpRequest.newBuilder(URI.create(uri))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+    }
+
+    private static void report(List<Map<Operation, Samples>> results, PoolSampler sampler) throws SQLException {
+        var out = System.out;
+        out.printf("%nLoad test: %d clients for %d s, %d targets with %d ms latency, %d KB pages, %d%% errors%n",
+                CLIENTS, DURATION_SECONDS, TARGETS, TARGET_LATENCY_MS, TARGET_BODY_KB, TARGET_ERROR_PERCENT);
+        out.printf("%-8s %10s %10s %10s %10s %8s%n", "op", "requests", "req/s", "p50 ms", "p99 ms", "errors");
+        var total = new Samples();
+        for (var operation : Operation.values()) {
+            var merged = new Samples();
+            results.forEach(samples -> {
+                if (samples.containsKey(operation)) {
+                    merged.addAll(samples.get(operation));
+                }
+            });
+            total.addAll(merged);
+            printRow(operation.name().toLowerCase(), merged);
+        }
+        printRow("total", total);
+        out.printf("Checks saved: %d%n", countChecks());
+        out.printf("Pool: size %d, active avg %.1f max %d, waiting threads max %d, saturated %.0f%% of the time%n",
+                sampler.maxPoolSize, sampler.averageActive(), sampler.maxActive, sampler.maxPending,
+                sampler.saturatedPercent());
+    }
+
+    private static void printRow(String name, Samples samples) {
+        System.out.printf("%-8s %10d %10.1f %10.1f %10.1f %8d%n", name, samples.count(),
+                samples.count() / (double) DURATION_SECONDS, samples.percentileMillis(50),
+                samples.percentileMillis(99), samples.errors());
+    }
+
+    private static long countChecks() throws SQLException {
+        try (var conn = BaseRepository.getDataSource().getConnection();
+             var stmt = conn.prepareStatement("SELECT COUNT(*) FROM url_checks")) {
+            var resultSet = stmt.executeQuery();
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    // Samples the connection pool; saturated means every connection was in use with threads waiting for one.
+    private static final class PoolSampler {
+        private final int maxPoolSize = BaseRepository.getDataSource().getMaximumPoolSize();
+        private long samples;
+        private long activeSum;
+        private long saturated;
+        private int maxActive;
+        private int maxPending;
+
+        synchronized void sample() {
+            var pool = BaseRepository.getDataSource().getHikariPoolMXBean();
+            var active = pool.getActiveConnections();
+            var pending = pool.getThreadsAwaitingConnection();
+            samples++;
+            activeSum += active;
+            maxActive = Math.max(maxActive, active);
+            maxPending = Math.max(maxPending, pending);
+            if (active >= maxPoolSize && pending > 0) {
+                saturated++;
+            }
+        }
+
+        synchronized double averageActive() {
+            return samples == 0 ? 0 : activeSum / (double) samples;
+        }
+
+        synchronized double saturatedPercent() {
+            return samples == 0 ? 0 : saturated * 100.0 / samples;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package hexlet.code.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+// Raw latencies of one operation recorded by one worker; workers merge theirs once the run is over,
+// so recording needs no synchronization.
+final class Samples {
+    private long[] nanos = new long[1024];
+    private int size;
+    private int errors;
+
+    void add(long latencyNanos, boolean failed) {
+        if (size == nanos.length) {
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        nanos[size++] = latencyNanos;
+        if (failed) {
+            errors++;
+        }
+    }
+
+    void addAll(Samples other) {
+        for (var i = 0; i < other.size; i++) {
+            add(other.nanos[i], false);
+        }
+        errors += other.errors;
+    }
+
+    int count() {
+        return size;
+    }
+
+    int errors() {
+        return errors;
+    }
+
+    // Percentile in milliseconds by the nearest-rank method.
+    double percentileMillis(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        var sorted = Arrays.copyOf(nanos, size);
+        Arrays.sort(sorted);
+        var rank = (int) Math.ceil(percentile / 100 * size);
+        return sorted[Math.max(0, rank - 1)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
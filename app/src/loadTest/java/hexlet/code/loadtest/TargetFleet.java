@@ -0,0 +1,61 @@
+package hexlet.code.loadtest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import mockwebserver3.Dispatcher;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+import mockwebserver3.RecordedRequest;
+
+// Local stand-ins for the sites being checked: every server answers any request after the configured
+// latency with an HTML page of the configured size, or with a 500 for the given share of requests.
+final class TargetFleet implements Closeable {
+    private static final int SERVER_ERROR = 500;
+    private final List<MockWebServer> servers = new ArrayList<>();
+
+    TargetFleet(int size, int latencyMillis, int bodyKilobytes, int errorPercent) throws IOException {
+        var page = page(bodyKilobytes);
+        for (var i = 0; i < size; i++) {
+            var server = new MockWebServer();
+            server.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) {
+                    var builder = new MockResponse.Builder()
+                            .headersDelay(latencyMillis, TimeUnit.MILLISECONDS)
+                            .addHeader("Content-Type", "text/html; charset=utf-8");
+                    if (ThreadLocalRandom.current().nextInt(100) < errorPercent) {
+                        return builder.code(SERVER_ERROR).body("<title>Server error</title>").build();
+                    }
+                    return builder.body(page).build();
+                }
+            });
+            server.start();
+            servers.add(server);
+        }
+    }
+
+    List<String> urls() {
+        return servers.stream().map(server -> server.url("/").toString()).toList();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (var server : servers) {
+            server.close();
+        }
+    }
+
+    private static String page(int kilobytes) {
+        var html = new StringBuilder("<!DOCTYPE html><html><head><title>Load test target</title>"
+                + "<meta name=\"description\" content=\"Stand-in page\"></head><body><h1>Target</h1>\n");
+        while (html.length() < kilobytes * 1024) {
+            html.append("<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.</p>\n");
+        }
+        return html.append("</body></html>").toString();
+    }
+}
@@ -1,11 +1,12 @@
 package hexlet.code;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.lang.management.ManagementFactory;
+import java.security.Security;
 import java.sql.SQLException;
-import java.util.stream.Collectors;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
@@ -13,12 +14,26 @@ import com.zaxxer.hikari.HikariDataSource;
 import gg.jte.ContentType;
 import gg.jte.TemplateEngine;
 import gg.jte.resolve.ResourceCodeResolver;
+import hexlet.code.controller.ApiController;
 import hexlet.code.controller.UrlController;
 import hexlet.code.dto.BasePage;
 import hexlet.code.dto.MainPage;
 import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.Migrations;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.service.CheckPruner;
+import hexlet.code.service.RecheckScheduler;
+import hexlet.code.service.UrlCheckService;
+import hexlet.code.service.UrlCheckWriter;
+import hexlet.code.service.Warmup;
+import hexlet.code.util.Env;
 import hexlet.code.util.FlashType;
+import hexlet.code.util.Metrics;
 import hexlet.code.util.NamedRoutes;
+import hexlet.code.util.PageCache;
+import hexlet.code.util.SearchIndex;
+import hexlet.code.util.TimedFileRenderer;
 import io.javalin.Javalin;
 import io.javalin.http.HttpStatus;
 import io.javalin.http.NotFoundResponse;
@@ -31,6 +46,7 @@ import static io.javalin.rendering.template.TemplateUtil.model;
 public class App {
     private static final String ATTR_FLASH = "flash";
     private static final String ATTR_FLASH_TYPE = "flashType";
+    private static final AtomicBoolean FIRST_REQUEST_SERVED = new AtomicBoolean();
 
     private static int getPort() {
         String port = System.getenv().getOrDefault("PORT", "7070");
@@ -41,56 +57,142 @@ public class App {
         return System.getenv().getOrDefault("JDBC_DATABASE_URL", "jdbc:h2:mem:project;DB_CLOSE_DELAY=-1;");
     }
 
-    private static String readResourceFile(String fileName) throws IOException {
-        var inputStream = App.class.getClassLoader().getResourceAsStream(fileName);
-        if (inputStream != null) {
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
-                    StandardCharsets.UTF_8))) {
-                return reader.lines().collect(Collectors.joining("\n"));
-            }
-        } else {
-            log.error("Failed to access {}", fileName);
-            return "";
-        }
+    private static boolean isInMemoryDatabase() {
+        return getJdbcUrl().startsWith("jdbc:h2:mem:");
+    }
+
+    // Production runs on templates compiled at build time and warms up before opening the port.
+    private static boolean isProduction() {
+        return System.getenv().getOrDefault("APP_ENV", "development").equalsIgnoreCase("production");
     }
 
     private static TemplateEngine createTemplateEngine() {
+        if (isProduction()) {
+            return TemplateEngine.createPrecompiled(ContentType.Html);
+        }
         ClassLoader classLoader = App.class.getClassLoader();
         ResourceCodeResolver codeResolver = new ResourceCodeResolver("templates", classLoader);
         return TemplateEngine.create(codeResolver, ContentType.Html);
     }
 
     public static void main(String[] args) throws IOException, SQLException {
+        // With DNS_CACHE_ONLY the JDK stops caching lookups and CachingResolverProvider, which is bounded and
+        // counted, is the only cache left. It applies to every lookup of the JVM, the database included, and has
+        // to be set before the first one, which is when the JDK reads its cache policy.
+        if (Env.getBoolean("DNS_CACHE_ONLY", false)) {
+            Security.setProperty("networkaddress.cache.ttl", "0");
+        }
         var app = getApp();
         var port = getPort();
         log.info("Starting application with listening on port {}", port);
+        Runtime.getRuntime().addShutdownHook(new Thread(app::stop));
         app.start(port);
+        log.info("Ready to serve {} ms after JVM start", millisSinceJvmStart());
     }
 
-    public static Javalin getApp() throws IOException, SQLException {
+    private static long millisSinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+
+    // Page views and checks each get their own connection budget; waiting for a connection is bounded
+    // by the timeout, after which the request or the check fails instead of queueing up further.
+    private static HikariDataSource createDataSource(String name, int poolSize, int connectionTimeoutMs) {
         var hikariConfig = new HikariConfig();
         hikariConfig.setJdbcUrl(getJdbcUrl());
-        hikariConfig.setMaximumPoolSize(10);
-
-        var dataSource = new HikariDataSource(hikariConfig);
-        // There won't be this env variable locally. It can be set to "true" on Render if needed.
-        if (System.getenv().getOrDefault("RECREATE_SCHEMA", "true").equalsIgnoreCase("true")) {
-            var sql = readResourceFile("schema.sql");
-            if (!sql.isEmpty()) {
-                log.info("Running recreate schema script");
-                try (var connection = dataSource.getConnection();
-                     var statement = connection.createStatement()) {
-                    statement.execute(sql);
-                }
-            } else {
-                log.error("Failed to read schema.sql");
-            }
+        hikariConfig.setPoolName(name);
+        hikariConfig.setMaximumPoolSize(poolSize);
+        hikariConfig.setConnectionTimeout(connectionTimeoutMs);
+        return new HikariDataSource(hikariConfig);
+    }
+
+    private static void registerPoolMetrics(HikariDataSource dataSource) {
+        var pool = dataSource.getHikariPoolMXBean();
+        var labels = Metrics.label("pool", dataSource.getPoolName());
+        Metrics.gauge("hikari_connections_active", "Connections currently in use", labels,
+                pool::getActiveConnections);
+        Metrics.gauge("hikari_connections_idle", "Connections idle in the pool", labels, pool::getIdleConnections);
+        Metrics.gauge("hikari_connections_pending", "Threads waiting for a connection", labels,
+                pool::getThreadsAwaitingConnection);
+        Metrics.gauge("hikari_connections_max", "Maximum pool size", labels, dataSource::getMaximumPoolSize);
+    }
+
+    private static void registerMetrics(HikariDataSource dataSource, HikariDataSource checkDataSource) {
+        registerPoolMetrics(dataSource);
+        registerPoolMetrics(checkDataSource);
+        Metrics.gauge("app_checks_pending", "Checks submitted but not finished", UrlCheckService::getPendingCount);
+        Metrics.gauge("app_check_write_buffer", "Checks waiting in the write-behind buffer",
+                UrlCheckWriter::getBuffered);
+        Metrics.counter("app_url_cache_hits_total", "Url entity cache hits", UrlRepository::getCacheHits);
+        Metrics.counter("app_url_cache_misses_total", "Url entity cache misses", UrlRepository::getCacheMisses);
+    }
+
+    private static void startBackgroundJobs() {
+        if (Env.getBoolean("CHECK_WRITE_BEHIND", false)) {
+            UrlCheckWriter.start();
+        }
+        var recheckMinutes = Env.getInt("RECHECK_INTERVAL_MINUTES", 0);
+        if (recheckMinutes > 0) {
+            RecheckScheduler.start(Duration.ofMinutes(recheckMinutes));
+        }
+        var pruneMinutes = Env.getInt("CHECK_PRUNE_INTERVAL_MINUTES", 60);
+        if (pruneMinutes > 0) {
+            CheckPruner.start(Duration.ofMinutes(pruneMinutes));
+        }
+    }
+
+    private static void buildSearchIndex() throws IOException, SQLException {
+        var start = System.nanoTime();
+        SearchIndex.clear();
+        var indexed = UrlCheckRepository.streamLatest(SearchIndex::onCheckSaved);
+        log.info("Search index built from {} checks in {} ms", indexed,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    public static Javalin getApp() throws IOException, SQLException {
+        var dataSource = createDataSource("web", Env.getInt("DB_POOL_SIZE", 10),
+                Env.getInt("DB_CONNECTION_TIMEOUT_MS", 5_000));
+        var checkDataSource = createDataSource("check", Env.getInt("CHECK_DB_POOL_SIZE", 4),
+                Env.getInt("CHECK_DB_CONNECTION_TIMEOUT_MS", 30_000));
+        registerMetrics(dataSource, checkDataSource);
+        // Only the throwaway in-memory database is rebuilt by default; set RECREATE_SCHEMA=true to wipe others.
+        if (Env.getBoolean("RECREATE_SCHEMA", isInMemoryDatabase())) {
+            Migrations.reset(dataSource);
         }
+        var applied = Migrations.migrate(dataSource);
+        UrlRepository.clearCache();
+        PageCache.clear();
+        log.info("Schema is at version {} ({} migrations applied)", Migrations.getCurrentVersion(dataSource), applied);
 
+        var previousCheckDataSource = BaseRepository.getCheckDataSource();
         BaseRepository.setDataSource(dataSource);
+        BaseRepository.setCheckDataSource(checkDataSource);
+        if (previousCheckDataSource != null) {
+            previousCheckDataSource.close();
+        }
+        buildSearchIndex();
+        var templateEngine = createTemplateEngine();
         var app = Javalin.create(config -> {
-            config.bundledPlugins.enableDevLogging();
-            config.fileRenderer(new JavalinJte(createTemplateEngine()));
+            // Requests are served on virtual threads, so a page view never waits for a thread held by slow I/O.
+            config.useVirtualThreads = true;
+            if (!isProduction()) {
+                config.bundledPlugins.enableDevLogging();
+            }
+            config.fileRenderer(new TimedFileRenderer(new JavalinJte(templateEngine)));
+            config.events(events -> {
+                // Background jobs are not needed to answer requests, so they only start once the port is open.
+                events.serverStarted(App::startBackgroundJobs);
+                events.serverStopping(RecheckScheduler::stop);
+                events.serverStopping(CheckPruner::stop);
+                events.serverStopping(UrlCheckWriter::stop);
+            });
+        });
+        app.after(ctx -> {
+            if (!FIRST_REQUEST_SERVED.get() && FIRST_REQUEST_SERVED.compareAndSet(false, true)) {
+                var millis = millisSinceJvmStart();
+                Metrics.gauge("app_first_request_seconds", "Time from JVM start until the first request was served",
+                        () -> millis / 1000.0);
+                log.info("First request served {} ms after JVM start", millis);
+            }
         });
 
         app.get(NamedRoutes.rootPath(), ctx -> {
@@ -101,10 +203,19 @@ public class App {
                 ATTR_FLASH_TYPE, ctx.consumeSessionAttribute(ATTR_FLASH_TYPE)
             ));
         });
+        app.get(NamedRoutes.metricsPath(), ctx -> ctx.contentType(Metrics.CONTENT_TYPE).result(Metrics.scrape()));
+        app.get(NamedRoutes.apiUrlsPath(), ApiController::urls);
+        app.get(NamedRoutes.apiUrlChecksPath("{id}"), ApiController::checks);
+        app.get(NamedRoutes.apiSearchPath(), ApiController::search);
         app.post(NamedRoutes.urlsPath(), UrlController::create);
         app.get(NamedRoutes.urlsPath(), UrlController::index);
+        app.post(NamedRoutes.importPath(), UrlController::importUrls);
+        app.post(NamedRoutes.bulkCheckPath(), UrlController::checkAll);
+        app.get(NamedRoutes.bulkCheckStatusPath(), UrlController::checkAllStatus);
         app.get(NamedRoutes.urlPath("{id}"), UrlController::show);
         app.post(NamedRoutes.checkPath("{id}"), UrlController::check);
+        app.sse(NamedRoutes.eventsPath(), UrlController::events);
+        app.sse(NamedRoutes.urlEventsPath("{id}"), UrlController::urlEvents);
         app.exception(NotFoundResponse.class, (e, ctx) -> {
             var page = new BasePage();
             ctx.status(HttpStatus.NOT_FOUND);
@@ -123,6 +234,9 @@ public class App {
                     ATTR_FLASH_TYPE, FlashType.ERROR
             ));
         });
+        if (isProduction()) {
+            Warmup.run(dataSource, templateEngine);
+        }
         return app;
     }
 }
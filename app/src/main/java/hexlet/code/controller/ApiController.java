@@ -0,0 +1,236 @@
+package hexlet.code.controller;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.Locale;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.SearchIndex;
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.NotFoundResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jetty.server.Request;
+
+// Machine-readable exports. Rows are written with a streaming generator as the JDBC cursor delivers them,
+// so memory use does not depend on how many urls or checks there are.
+@Slf4j
+public final class ApiController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int SEARCH_LIMIT = 20;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private ApiController() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static void urls(Context ctx) {
+        export(ctx, stream -> UrlRepository.streamAll(url -> writeUrl(stream.next(), url)));
+    }
+
+    public static void checks(Context ctx) {
+        var id = ctx.pathParamAsClass("id", Long.class).get();
+        export(ctx, stream -> {
+            if (UrlRepository.find(id).isEmpty()) {
+                throw new NotFoundResponse("Страница с id = " + id + " не найдена");
+            }
+            UrlCheckRepository.streamByUrlId(id, check -> writeCheck(stream.next(), check));
+        });
+    }
+
+    // Ranked urls whose latest check mentions every word of ?q=. The in-memory index does the matching and ranking;
+    // the hits are then filled in with one query for their checks and at most one for their urls.
+    public static void search(Context ctx) {
+        var query = ctx.queryParamAsClass("q", String.class).getOrDefault("");
+        var limit = Math.clamp(ctx.queryParamAsClass("limit", Integer.class).getOrDefault(SEARCH_LIMIT),
+                1, MAX_SEARCH_LIMIT);
+        export(ctx, stream -> {
+            var hits = SearchIndex.search(query, limit);
+            var ids = hits.stream().map(SearchIndex.Hit::urlId).toList();
+            var checks = UrlCheckRepository.getLatestChecks(ids);
+            var urls = UrlRepository.findAll(ids);
+            for (var hit : hits) {
+                var url = urls.get(hit.urlId());
+                var check = checks.get(hit.urlId());
+                if (url != null && check != null) {
+                    writeHit(stream.next(), url, check, hit.score());
+                }
+            }
+        });
+    }
+
+    // Errors are answered here rather than by the app's HTML error pages. Until the first byte has left the
+    // generator the response is replaced by a JSON error; after that the connection is aborted, so a client
+    // never takes a truncated export for a whole one.
+    private static void export(Context ctx, Export export) {
+        JsonStream stream = null;
+        try {
+            stream = open(ctx);
+            export.write(stream);
+            stream.finish();
+        } catch (NotFoundResponse e) {
+            error(ctx, stream, HttpStatus.NOT_FOUND, e.getMessage(), e);
+        } catch (SQLException | IOException | RuntimeException e) {
+            log.error("Export of {} failed", ctx.path(), e);
+            error(ctx, stream, HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось выгрузить данные", e);
+        }
+    }
+
+    private static void error(Context ctx, JsonStream stream, HttpStatus status, String message, Exception cause) {
+        if (stream != null && stream.getWritten() > 0) {
+            var request = Request.getBaseRequest(ctx.req());
+            if (request != null) {
+                request.getHttpChannel().abort(cause);
+            }
+            return;
+        }
+        var out = new StringWriter();
+        try (var json = JSON_FACTORY.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("error", message);
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ctx.status(status).contentType(ContentType.JSON).result(out.toString());
+    }
+
+    // NDJSON is chosen by ?format=ndjson or by asking for application/x-ndjson, a JSON array otherwise.
+    private static JsonStream open(Context ctx) throws IOException {
+        var format = ctx.queryParam("format");
+        var accept = ctx.header("Accept");
+        var ndjson = "ndjson".equalsIgnoreCase(format)
+                || format == null && accept != null && accept.toLowerCase(Locale.ROOT).contains(NDJSON);
+        ctx.contentType(ndjson ? NDJSON : ContentType.JSON);
+        return new JsonStream(ctx.outputStream(), ndjson);
+    }
+
+    private static void writeUrl(JsonGenerator json, Url url) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", url.getId());
+        json.writeStringField("name", url.getName());
+        json.writeStringField("createdAt", String.valueOf(url.getCreatedAt()));
+        json.writeEndObject();
+    }
+
+    private static void writeCheck(JsonGenerator json, UrlCheck check) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", check.getId());
+        json.writeNumberField("urlId", check.getUrlId());
+        json.writeNumberField("statusCode", check.getStatusCode());
+        json.writeStringField("title", check.getTitle());
+        json.writeStringField("h1", check.getH1());
+        json.writeStringField("description", check.getDescription());
+        json.writeStringField("createdAt", String.valueOf(check.getCreatedAt()));
+        if (check.getLastConfirmedAt() == null) {
+            json.writeNullField("lastConfirmedAt");
+        } else {
+            json.writeStringField("lastConfirmedAt", check.getLastConfirmedAt().toString());
+        }
+        json.writeNumberField("repeatCount", check.getRepeatCount());
+        writeNullableNumber(json, "responseTimeMs", check.getResponseTimeMs());
+        writeNullableNumber(json, "ttfbMs", check.getTtfbMs());
+        writeNullableNumber(json, "downloadMs", check.getDownloadMs());
+        json.writeEndObject();
+    }
+
+    private static void writeNullableNumber(JsonGenerator json, String name, Integer value) throws IOException {
+        if (value == null) {
+            json.writeNullField(name);
+        } else {
+            json.writeNumberField(name, value);
+        }
+    }
+
+    private static void writeHit(JsonGenerator json, Url url, UrlCheck check, double score) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("id", url.getId());
+        json.writeStringField("name", url.getName());
+        json.writeNumberField("score", score);
+        json.writeNumberField("statusCode", check.getStatusCode());
+        json.writeStringField("title", check.getTitle());
+        json.writeStringField("h1", check.getH1());
+        json.writeEndObject();
+    }
+
+    @FunctionalInterface
+    private interface Export {
+        void write(JsonStream stream) throws SQLException, IOException;
+    }
+
+    // Either one JSON array or one object per line; next() returns the generator positioned for the next item.
+    private static final class JsonStream {
+        private final CountingOutputStream out;
+        private final JsonGenerator json;
+        private final boolean ndjson;
+        private boolean first = true;
+
+        JsonStream(OutputStream out, boolean ndjson) throws IOException {
+            this.out = new CountingOutputStream(out);
+            this.json = JSON_FACTORY.createGenerator(this.out);
+            this.ndjson = ndjson;
+            if (ndjson) {
+                json.setRootValueSeparator(null);
+            } else {
+                json.writeStartArray();
+            }
+        }
+
+        JsonGenerator next() throws IOException {
+            if (ndjson && !first) {
+                json.writeRaw('\n');
+            }
+            first = false;
+            return json;
+        }
+
+        void finish() throws IOException {
+            if (ndjson) {
+                if (!first) {
+                    json.writeRaw('\n');
+                }
+            } else {
+                json.writeEndArray();
+            }
+            json.close();
+        }
+
+        // Bytes handed on to the response; anything still buffered in the generator can be thrown away.
+        long getWritten() {
+            return out.count;
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -1,30 +1,44 @@
 package hexlet.code.controller;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.MalformedURLException;
-import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 import hexlet.code.dto.UrlPage;
 import hexlet.code.dto.UrlsPage;
 import hexlet.code.model.Url;
 import hexlet.code.model.UrlCheck;
 import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlCheckRollupRepository;
 import hexlet.code.repository.UrlRepository;
+import hexlet.code.repository.UrlResponseTimeRepository;
+import hexlet.code.service.BulkCheckService;
+import hexlet.code.service.CheckPruner;
+import hexlet.code.service.UrlCheckService;
+import hexlet.code.service.UrlImportService;
+import hexlet.code.util.CheckEvents;
+import hexlet.code.util.Env;
 import hexlet.code.util.FlashType;
 import hexlet.code.util.NamedRoutes;
+import hexlet.code.util.PageCache;
+import hexlet.code.util.UrlNormalizer;
+import io.javalin.http.ContentType;
 import io.javalin.http.Context;
 import static io.javalin.rendering.template.TemplateUtil.model;
 
 import io.javalin.http.NotFoundResponse;
-import kong.unirest.core.Unirest;
-import kong.unirest.core.UnirestException;
+import io.javalin.http.sse.SseClient;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
 
 @Slf4j
 public final class UrlController {
@@ -32,25 +46,23 @@ public final class UrlController {
     private static final String URL_PAGE_JTE = "urls/show.jte";
     private static final String ATTR_FLASH = "flash";
     private static final String ATTR_FLASH_TYPE = "flashType";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    // The url page shows response time percentiles over this many days, today included.
+    private static final int RESPONSE_TIME_DAYS = Math.max(1, Env.getInt("RESPONSE_TIME_DAYS", 7));
+    // An idle event stream sends a comment this often, so proxies keep it open and closed ones are noticed.
+    private static final int SSE_HEARTBEAT_SECONDS = Math.max(1, Env.getInt("SSE_HEARTBEAT_SECONDS", 15));
+    private static final String IDLE_EVENT = "check-idle";
 
     private UrlController() {
         throw new UnsupportedOperationException("Utility class");
     }
 
-    private static String getUrlFromString(String input) throws URISyntaxException, MalformedURLException {
-        URL urlObj = (new URI(input.trim().toLowerCase())).toURL();
-        return String.format(
-            "%s://%s%s",
-            urlObj.getProtocol(),
-            urlObj.getHost(),
-            (urlObj.getPort() == -1 ? "" : ":" + urlObj.getPort()));
-    }
-
     public static void create(Context ctx) throws SQLException {
         var urlParam  = ctx.formParam("url");
         String name = null;
         try {
-            name = getUrlFromString(Objects.requireNonNull(urlParam));
+            name = UrlNormalizer.normalize(Objects.requireNonNull(urlParam));
         } catch (URISyntaxException | MalformedURLException | NullPointerException | IllegalArgumentException e) {
             log.info("Incorrect url passed: {}", urlParam);
         }
@@ -61,71 +73,198 @@ public final class UrlController {
             return;
         }
 
-        var url = UrlRepository.findByName(name).orElse(null);
-        if (url != null) {
+        var url = new Url(name);
+        if (UrlRepository.saveIfAbsent(url)) {
+            ctx.sessionAttribute(ATTR_FLASH, "Страница успешно добавлена");
+            ctx.sessionAttribute(ATTR_FLASH_TYPE, FlashType.SUCCESS);
+            ctx.redirect(NamedRoutes.urlsPath());
+        } else {
             ctx.sessionAttribute(ATTR_FLASH, "Страница уже существует");
             ctx.sessionAttribute(ATTR_FLASH_TYPE, FlashType.ERROR);
             ctx.redirect(NamedRoutes.rootPath());
+        }
+    }
+
+    // Takes an uploaded file, a "urls" form field or a plain text body; JSON clients get the summary back as is.
+    public static void importUrls(Context ctx) throws IOException, SQLException {
+        var file = ctx.isMultipartFormData() ? ctx.uploadedFile("file") : null;
+        var field = file == null ? ctx.formParam("urls") : null;
+        Reader input;
+        if (file != null) {
+            input = new InputStreamReader(file.content(), StandardCharsets.UTF_8);
+        } else if (field != null) {
+            input = new StringReader(field);
         } else {
-            var urlObj = new Url(name);
-            UrlRepository.save(urlObj);
-            ctx.sessionAttribute(ATTR_FLASH, "Страница успешно добавлена");
-            ctx.sessionAttribute(ATTR_FLASH_TYPE, FlashType.SUCCESS);
-            ctx.redirect(NamedRoutes.urlsPath());
+            input = new StringReader(ctx.body());
+        }
+        var summary = UrlImportService.importUrls(input);
+        var accept = ctx.header("Accept");
+        if (accept != null && accept.contains(ContentType.JSON)) {
+            ctx.json(summary);
+            return;
         }
+        ctx.sessionAttribute(ATTR_FLASH, String.format(
+                "Импорт завершён: добавлено %d, уже были %d, некорректных %d (%.0f адресов/с)",
+                summary.getAdded(), summary.getDuplicates(), summary.getInvalid(), summary.getUrlsPerSecond()));
+        ctx.sessionAttribute(ATTR_FLASH_TYPE, summary.getAdded() > 0 ? FlashType.SUCCESS : FlashType.INFO);
+        ctx.redirect(NamedRoutes.urlsPath());
     }
 
     public static void index(Context ctx) throws SQLException {
-        List<Url> urls = UrlRepository.getEntities();
-        Map<Long, UrlCheck> checks = UrlCheckRepository.getLatestChecks();
-        var page = new UrlsPage(urls, checks);
+        var size = Math.clamp(ctx.queryParamAsClass("size", Integer.class).getOrDefault(DEFAULT_PAGE_SIZE),
+                1, MAX_PAGE_SIZE);
+        var after = ctx.queryParamAsClass("after", Long.class).allowNullable().get();
+        var before = ctx.queryParamAsClass("before", Long.class).allowNullable().get();
+
+        var cacheKey = size + ":" + after + ":" + before;
+        var page = PageCache.getIndexPage(cacheKey);
+        if (page == null) {
+            var generation = PageCache.generation();
+            page = loadUrlsPage(size, after, before);
+            PageCache.putIndexPage(cacheKey, page, generation);
+        }
         ctx.render(URLS_PAGE_JTE, model(
             "page", page,
             ATTR_FLASH, ctx.consumeSessionAttribute(ATTR_FLASH),
-            ATTR_FLASH_TYPE, ctx.consumeSessionAttribute(ATTR_FLASH_TYPE)
+            ATTR_FLASH_TYPE, ctx.consumeSessionAttribute(ATTR_FLASH_TYPE),
+            "bulkProgress", BulkCheckService.getProgress().orElse(null)
         ));
     }
 
+    private static UrlsPage loadUrlsPage(int size, Long after, Long before) throws SQLException {
+        // One extra row tells whether there is anything beyond the page in the direction of travel.
+        List<Url> urls;
+        boolean hasPrev;
+        boolean hasNext;
+        if (before != null) {
+            urls = UrlRepository.getPageBefore(before, size + 1);
+            hasPrev = urls.size() > size;
+            hasNext = true;
+            if (hasPrev) {
+                urls = urls.subList(1, urls.size());
+            }
+        } else {
+            urls = UrlRepository.getPageAfter(after == null ? 0 : after, size + 1);
+            hasPrev = after != null;
+            hasNext = urls.size() > size;
+            if (hasNext) {
+                urls = urls.subList(0, size);
+            }
+        }
+
+        var ids = urls.stream().map(Url::getId).toList();
+        Map<Long, UrlCheck> checks = UrlCheckRepository.getLatestChecks(ids);
+        var prevCursor = hasPrev && !urls.isEmpty() ? urls.getFirst().getId() : null;
+        var nextCursor = hasNext && !urls.isEmpty() ? urls.getLast().getId() : null;
+        return new UrlsPage(List.copyOf(urls), checks, prevCursor, nextCursor, size);
+    }
+
     public static void show(Context ctx) throws SQLException {
-        Url url = UrlRepository.find(Long.valueOf(ctx.pathParam("id")))
+        var id = Long.valueOf(ctx.pathParam("id"));
+        var page = PageCache.getUrlPage(id);
+        if (page == null) {
+            var generation = PageCache.generation();
+            Url url = UrlRepository.find(id)
                     .orElseThrow(() -> new NotFoundResponse("Страница с id = " + ctx.pathParam("id") + " не найдена"));
-        List<UrlCheck> checks = UrlCheckRepository.getEntitiesByUrlId(url.getId());
+            page = buildUrlPage(url);
+            PageCache.putUrlPage(id, page, generation);
+        }
 
-        var page = new UrlPage(url, checks);
         ctx.render(URL_PAGE_JTE, model(
                 "page", page,
                 ATTR_FLASH, ctx.consumeSessionAttribute(ATTR_FLASH),
                 ATTR_FLASH_TYPE, ctx.consumeSessionAttribute(ATTR_FLASH_TYPE),
-                "activeNav", NamedRoutes.urlsPath()
+                "activeNav", NamedRoutes.urlsPath(),
+                "pending", UrlCheckService.isPending(id),
+                "checkError", UrlCheckService.getFailure(id).orElse(null)
         ));
     }
 
-    public static void check(Context ctx) {
+    public static UrlPage buildUrlPage(Url url) throws SQLException {
+        List<UrlCheck> checks = UrlCheckRepository.getEntitiesByUrlId(url.getId(), CheckPruner.getRawRetention());
+        var rollups = UrlCheckRollupRepository.getByUrlId(url.getId(), CheckPruner.getShownRollups());
+        var since = LocalDate.now().minusDays(RESPONSE_TIME_DAYS - 1).atStartOfDay();
+        var responseTimes = UrlResponseTimeRepository.getSince(url.getId(), since);
+        return new UrlPage(url, checks, rollups, responseTimes);
+    }
+
+    // Check events of every url.
+    public static void events(SseClient client) {
+        stream(client, null);
+    }
+
+    // Check events of one url. Starts with check-idle when no check of it is running, so a page that rendered
+    // a pending check just before it finished still learns that it is done.
+    public static void urlEvents(SseClient client) {
+        var id = client.ctx().pathParamAsClass("id", Long.class).get();
         try {
-            var url = UrlRepository.find(Long.valueOf(ctx.pathParam("id")))
-                    .orElseThrow(() -> new NotFoundResponse("Страница с id = " + ctx.pathParam("id") + " не найдена"));
-            var requestStr = Unirest.get(url.getName()).asString();
-            var status = requestStr.getStatus();
-            var body = requestStr.getBody();
-            var document = Jsoup.parse(body);
-            var title = document.title();
-            var h1Element = document.selectFirst("h1");
-            var h1 = h1Element == null ? "" : h1Element.text();
-            var decsrElement = document.selectFirst("meta[name=description]");
-            var description = decsrElement == null ? "" : decsrElement.attr("content");
-            var check = new UrlCheck(status, title, h1, description, url.getId());
-            UrlCheckRepository.save(check);
-            ctx.sessionAttribute(ATTR_FLASH, "Страница успешно проверена");
-            ctx.sessionAttribute(ATTR_FLASH_TYPE, FlashType.SUCCESS);
-            ctx.redirect(NamedRoutes.urlPath(url.getId()));
-        } catch (UnirestException e) {
-            ctx.sessionAttribute(ATTR_FLASH, "Некорректный адрес");
-            ctx.sessionAttribute(ATTR_FLASH_TYPE, FlashType.ERROR);
-            ctx.redirect(NamedRoutes.urlPath(ctx.pathParam("id")));
-        } catch (Exception e) {
-            ctx.sessionAttribute(ATTR_FLASH, e.getMessage());
-            ctx.sessionAttribute(ATTR_FLASH_TYPE, FlashType.ERROR);
-            ctx.redirect(NamedRoutes.urlPath(ctx.pathParam("id")));
+            if (UrlRepository.find(id).isEmpty()) {
+                client.close();
+                return;
+            }
+        } catch (SQLException e) {
+            log.error("Could not open the event stream of url {}", id, e);
+            client.close();
+            return;
+        }
+        stream(client, id);
+    }
+
+    // Runs on the request's virtual thread until the client goes away or is dropped for falling behind.
+    private static void stream(SseClient client, Long urlId) {
+        var subscription = CheckEvents.subscribe(urlId);
+        if (subscription.isEmpty()) {
+            log.warn("Too many event streams open, closing a new one");
+            client.close();
+            return;
+        }
+        try (var events = subscription.get()) {
+            if (urlId != null && !UrlCheckService.isPending(urlId)) {
+                client.sendEvent(IDLE_EVENT, "{\"urlId\":" + urlId + "}");
+            }
+            while (!client.terminated() && !events.isDropped()) {
+                var event = events.next(SSE_HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                if (event == null) {
+                    client.sendComment("heartbeat");
+                } else {
+                    client.sendEvent(event.name(), event.data());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            client.close();
         }
     }
+
+    public static void check(Context ctx) throws SQLException {
+        var url = UrlRepository.find(Long.valueOf(ctx.pathParam("id")))
+                .orElseThrow(() -> new NotFoundResponse("Страница с id = " + ctx.pathParam("id") + " не найдена"));
+        var submission = UrlCheckService.submit(url);
+        ctx.sessionAttribute(ATTR_FLASH, switch (submission) {
+            case STARTED -> "Проверка запущена";
+            case ALREADY_PENDING -> "Проверка уже выполняется";
+            case REJECTED -> "Слишком много проверок в очереди, попробуйте позже";
+        });
+        ctx.sessionAttribute(ATTR_FLASH_TYPE,
+                submission == UrlCheckService.Submission.STARTED ? FlashType.INFO : FlashType.WARNING);
+        ctx.redirect(NamedRoutes.urlPath(url.getId()));
+    }
+
+    public static void checkAll(Context ctx) {
+        if (BulkCheckService.start()) {
+            ctx.sessionAttribute(ATTR_FLASH, "Проверка всех сайтов запущена");
+            ctx.sessionAttribute(ATTR_FLASH_TYPE, FlashType.INFO);
+        } else {
+            ctx.sessionAttribute(ATTR_FLASH, "Проверка всех сайтов уже выполняется");
+            ctx.sessionAttribute(ATTR_FLASH_TYPE, FlashType.WARNING);
+        }
+        ctx.redirect(NamedRoutes.urlsPath());
+    }
+
+    public static void checkAllStatus(Context ctx) {
+        var progress = BulkCheckService.getProgress()
+                .orElseThrow(() -> new NotFoundResponse("Проверка всех сайтов не запускалась"));
+        ctx.json(progress);
+    }
 }
@@ -0,0 +1,68 @@
+package hexlet.code.dto;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.Getter;
+
+public final class BulkCheckProgress {
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    @Getter
+    private final long startedAt = System.currentTimeMillis();
+    private volatile long finishedAt;
+
+    public void addTotal(int count) {
+        total.addAndGet(count);
+    }
+
+    public void markDone() {
+        done.incrementAndGet();
+    }
+
+    public void markFailed() {
+        failed.incrementAndGet();
+    }
+
+    public void markSkipped() {
+        skipped.incrementAndGet();
+    }
+
+    public void finish() {
+        finishedAt = System.currentTimeMillis();
+    }
+
+    public boolean isRunning() {
+        return finishedAt == 0;
+    }
+
+    public int getTotal() {
+        return total.get();
+    }
+
+    public int getDone() {
+        return done.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    public int getRemaining() {
+        return getTotal() - getDone() - getFailed() - getSkipped();
+    }
+
+    public long getElapsedMillis() {
+        return (isRunning() ? System.currentTimeMillis() : finishedAt) - startedAt;
+    }
+
+    public double getChecksPerSecond() {
+        var elapsed = getElapsedMillis();
+        return elapsed == 0 ? 0 : (getDone() + getFailed()) * 1000.0 / elapsed;
+    }
+}
@@ -0,0 +1,21 @@
+package hexlet.code.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public final class ImportSummary {
+    private final int added;
+    private final int duplicates;
+    private final int invalid;
+    private final long elapsedMillis;
+
+    public int getTotal() {
+        return added + duplicates + invalid;
+    }
+
+    public double getUrlsPerSecond() {
+        return elapsedMillis == 0 ? getTotal() * 1000.0 : getTotal() * 1000.0 / elapsedMillis;
+    }
+}
@@ -2,6 +2,8 @@ package hexlet.code.dto;
 
 import hexlet.code.model.Url;
 import hexlet.code.model.UrlCheck;
+import hexlet.code.model.UrlCheckRollup;
+import hexlet.code.util.LatencyHistogram;
 import lombok.Getter;
 
 import java.util.List;
@@ -10,16 +12,28 @@ import java.util.List;
 public class UrlPage extends BasePage {
     private final Url url;
     private final List<UrlCheck> checks;
+    private final List<UrlCheckRollup> rollups;
+    private final LatencyHistogram responseTimes;
 
     public UrlPage(Url url) {
         super();
         this.url = url;
         this.checks = null;
+        this.rollups = List.of();
+        this.responseTimes = new LatencyHistogram();
     }
 
     public UrlPage(Url url, List<UrlCheck> checks) {
+        this(url, checks, List.of(), new LatencyHistogram());
+    }
+
+    // Checks are the newest ones kept as is, rollups summarize the older ones by period, and response times
+    // cover every check of the recent days, repeats included.
+    public UrlPage(Url url, List<UrlCheck> checks, List<UrlCheckRollup> rollups, LatencyHistogram responseTimes) {
         super();
         this.url = url;
         this.checks = checks;
+        this.rollups = rollups;
+        this.responseTimes = responseTimes;
     }
 }
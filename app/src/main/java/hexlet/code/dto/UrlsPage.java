@@ -13,4 +13,7 @@ import lombok.Getter;
 public class UrlsPage extends BasePage {
     private final List<Url> urls;
     private final Map<Long, UrlCheck> checks;
+    private final Long prevCursor;
+    private final Long nextCursor;
+    private final int pageSize;
 }
@@ -1,11 +1,13 @@
 package hexlet.code.model;
 
 import java.time.LocalDateTime;
+
+import hexlet.code.util.Fingerprint;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
-public class UrlCheck {
+public final class UrlCheck {
     @Setter
     private Long id;
     private final int statusCode;
@@ -14,7 +16,24 @@ public class UrlCheck {
     private final String description;
     private final Long urlId;
     @Setter
+    private String etag;
+    @Setter
+    private String lastModified;
+    @Setter
     private LocalDateTime createdAt;
+    // A later check with the same fingerprint only updates these two instead of adding a row.
+    @Setter
+    private LocalDateTime lastConfirmedAt;
+    @Setter
+    private int repeatCount;
+    // Milliseconds from sending the request to the whole response; the headers arrived after ttfbMs,
+    // the body took downloadMs. Null for checks stored before timings were recorded.
+    @Setter
+    private Integer responseTimeMs;
+    @Setter
+    private Integer ttfbMs;
+    @Setter
+    private Integer downloadMs;
 
     public UrlCheck(int statusCode, String title, String h1, String description, Long urlId) {
         this.statusCode = statusCode;
@@ -23,4 +42,13 @@ public class UrlCheck {
         this.description = description;
         this.urlId = urlId;
     }
+
+    public long getFingerprint() {
+        return Fingerprint.of(statusCode, title, h1, description);
+    }
+
+    // When the page was last seen in this state.
+    public LocalDateTime getLastSeenAt() {
+        return lastConfirmedAt == null ? createdAt : lastConfirmedAt;
+    }
 }
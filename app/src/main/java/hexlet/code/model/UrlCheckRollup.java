@@ -0,0 +1,47 @@
+package hexlet.code.model;
+
+import java.time.LocalDateTime;
+
+import lombok.Getter;
+import lombok.Setter;
+
+// Aggregate of the pruned checks of one url within one period (an hour or a day).
+@Getter
+@Setter
+public final class UrlCheckRollup {
+    private static final int HTTP_2XX = 2;
+    private static final int HTTP_3XX = 3;
+    private static final int HTTP_4XX = 4;
+    private static final int HTTP_5XX = 5;
+
+    private final Long urlId;
+    private final LocalDateTime periodStart;
+    private int checkCount;
+    private int status2xx;
+    private int status3xx;
+    private int status4xx;
+    private int status5xx;
+    private int statusOther;
+    private int changeCount;
+    private Long lastFingerprint;
+
+    public UrlCheckRollup(Long urlId, LocalDateTime periodStart) {
+        this.urlId = urlId;
+        this.periodStart = periodStart;
+    }
+
+    public void add(int statusCode, int times, boolean changed, long fingerprint) {
+        checkCount += times;
+        switch (statusCode / 100) {
+            case HTTP_2XX -> status2xx += times;
+            case HTTP_3XX -> status3xx += times;
+            case HTTP_4XX -> status4xx += times;
+            case HTTP_5XX -> status5xx += times;
+            default -> statusOther += times;
+        }
+        if (changed) {
+            changeCount++;
+        }
+        lastFingerprint = fingerprint;
+    }
+}
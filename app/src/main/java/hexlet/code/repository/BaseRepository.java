@@ -1,16 +1,107 @@
 package hexlet.code.repository;
 
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
 import com.zaxxer.hikari.HikariDataSource;
 
+import hexlet.code.util.Env;
+import hexlet.code.util.Histogram;
+import hexlet.code.util.Metrics;
 import lombok.Getter;
 import lombok.Setter;
 
 public abstract class BaseRepository {
-    @Getter
+    private static final int STREAM_FETCH_SIZE = Env.getInt("STREAM_FETCH_SIZE", 500);
+
+    private static final ThreadLocal<Boolean> CHECK_LANE = ThreadLocal.withInitial(() -> false);
+
+    // Page views and checks use separate pools, so a burst of checks cannot take the connections pages need.
     @Setter
     private static HikariDataSource dataSource;
+    @Getter
+    @Setter
+    private static HikariDataSource checkDataSource;
 
     protected BaseRepository() {
         throw new UnsupportedOperationException("Utility class, should not be instantiated");
     }
+
+    // Inside runInCheckLane this is the check pool, if one is configured, and the page pool everywhere else.
+    public static HikariDataSource getDataSource() {
+        var checks = checkDataSource;
+        return CHECK_LANE.get() && checks != null ? checks : dataSource;
+    }
+
+    public static void runInCheckLane(Runnable task) {
+        if (CHECK_LANE.get()) {
+            task.run();
+            return;
+        }
+        CHECK_LANE.set(true);
+        try {
+            task.run();
+        } finally {
+            CHECK_LANE.remove();
+        }
+    }
+
+    protected static boolean isPostgres(Connection conn) throws SQLException {
+        return conn.getMetaData().getDatabaseProductName().equalsIgnoreCase("PostgreSQL");
+    }
+
+    protected static boolean isUniqueViolation(SQLException e) {
+        return "23505".equals(e.getSQLState());
+    }
+
+    protected static Histogram queryTimer(String repository, String method) {
+        return Metrics.histogram("app_query_duration_seconds", "Time spent in repository methods",
+                Metrics.label("repository", repository) + "," + Metrics.label("method", method));
+    }
+
+    @FunctionalInterface
+    protected interface ParameterBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    @FunctionalInterface
+    protected interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    protected static <T> long stream(String sql, RowMapper<T> mapper, RowConsumer<? super T> consumer)
+            throws SQLException, IOException {
+        return stream(sql, null, mapper, consumer);
+    }
+
+    // Hands rows to the consumer as they are fetched instead of collecting them. PostgreSQL only uses a cursor,
+    // and thereby honours the fetch size, inside a transaction, hence auto-commit is turned off for the duration.
+    protected static <T> long stream(String sql, ParameterBinder binder, RowMapper<T> mapper,
+                                     RowConsumer<? super T> consumer) throws SQLException, IOException {
+        try (var conn = getDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            try (var stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(STREAM_FETCH_SIZE);
+                if (binder != null) {
+                    binder.bind(stmt);
+                }
+                var count = 0L;
+                try (var resultSet = stmt.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(mapper.map(resultSet));
+                        count++;
+                    }
+                }
+                conn.commit();
+                return count;
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
 }
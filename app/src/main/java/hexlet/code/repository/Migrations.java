@@ -0,0 +1,139 @@
+package hexlet.code.repository;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public final class Migrations {
+    private static final String MIGRATIONS_DIR = "db/migration/";
+    private static final String RESET_SCRIPT = "db/reset.sql";
+    // Append only: a script's position in this list is its version.
+    private static final List<String> SCRIPTS = List.of(
+        "V1__create_tables.sql",
+        "V2__add_indexes.sql",
+        "V3__add_check_validators.sql",
+        "V4__add_last_checked_at.sql",
+        "V5__create_check_rollups.sql",
+        "V6__add_check_fingerprint.sql",
+        "V7__add_response_times.sql"
+    );
+
+    private Migrations() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static void reset(DataSource dataSource) throws IOException, SQLException {
+        log.info("Dropping all tables");
+        execute(dataSource, readResourceFile(RESET_SCRIPT));
+    }
+
+    // Returns the number of scripts this call applied. Instances starting at the same time take turns: each holds
+    // a lock on the version 0 row of schema_version while it migrates, on a connection of its own, because H2
+    // commits a transaction at every DDL statement and would let go of the lock otherwise.
+    public static int migrate(DataSource dataSource) throws IOException, SQLException {
+        try (var lock = dataSource.getConnection()) {
+            createVersionTable(lock);
+            lock.setAutoCommit(false);
+            try {
+                try (var stmt = lock.prepareStatement("SELECT version FROM schema_version WHERE version = 0 "
+                        + "FOR UPDATE")) {
+                    stmt.executeQuery();
+                }
+                var current = getCurrentVersion(dataSource);
+                if (current > SCRIPTS.size()) {
+                    log.warn("Schema is at version {}, newer than the {} scripts of this build", current,
+                            SCRIPTS.size());
+                }
+                var applied = 0;
+                for (var version = current + 1; version <= SCRIPTS.size(); version++) {
+                    apply(dataSource, version, SCRIPTS.get(version - 1));
+                    applied++;
+                }
+                return applied;
+            } finally {
+                lock.rollback();
+            }
+        }
+    }
+
+    // Creates the table with the version 0 row that migrate() locks. Another instance doing the same at the same
+    // time shows up as a unique violation (PostgreSQL reports one for the table's type too), which is harmless.
+    private static void createVersionTable(Connection conn) throws SQLException {
+        executeIgnoringDuplicate(conn, "CREATE TABLE IF NOT EXISTS schema_version ("
+                + "version INT PRIMARY KEY, "
+                + "script VARCHAR(255) NOT NULL, "
+                + "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+        executeIgnoringDuplicate(conn, "INSERT INTO schema_version (version, script) SELECT 0, 'lock' "
+                + "WHERE NOT EXISTS (SELECT 1 FROM schema_version WHERE version = 0)");
+    }
+
+    private static void executeIgnoringDuplicate(Connection conn, String sql) throws SQLException {
+        try (var statement = conn.createStatement()) {
+            statement.execute(sql);
+        } catch (SQLException e) {
+            if (!BaseRepository.isUniqueViolation(e)) {
+                throw e;
+            }
+        }
+    }
+
+    public static int getCurrentVersion(DataSource dataSource) throws SQLException {
+        try (var conn = dataSource.getConnection();
+             var stmt = conn.prepareStatement("SELECT MAX(version) FROM schema_version")) {
+            var resultSet = stmt.executeQuery();
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+
+    private static void apply(DataSource dataSource, int version, String script) throws IOException, SQLException {
+        var sql = readResourceFile(MIGRATIONS_DIR + script);
+        if (sql.isEmpty()) {
+            throw new IOException("Migration " + script + " is missing or empty");
+        }
+        log.info("Applying migration {}", script);
+        try (var conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (var statement = conn.createStatement();
+                 var record = conn.prepareStatement("INSERT INTO schema_version (version, script) VALUES (?, ?)")) {
+                statement.execute(sql);
+                record.setInt(1, version);
+                record.setString(2, script);
+                record.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static void execute(DataSource dataSource, String sql) throws SQLException {
+        try (var conn = dataSource.getConnection();
+             var statement = conn.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    static String readResourceFile(String fileName) throws IOException {
+        var inputStream = Migrations.class.getClassLoader().getResourceAsStream(fileName);
+        if (inputStream != null) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
+                    StandardCharsets.UTF_8))) {
+                return reader.lines().collect(Collectors.joining("\n"));
+            }
+        } else {
+            log.error("Failed to access {}", fileName);
+            return "";
+        }
+    }
+}
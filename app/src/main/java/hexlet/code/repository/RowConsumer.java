@@ -0,0 +1,9 @@
+package hexlet.code.repository;
+
+import java.io.IOException;
+
+// Receives rows one at a time while the cursor is still open, typically to write them straight to a response.
+@FunctionalInterface
+public interface RowConsumer<T> {
+    void accept(T row) throws IOException;
+}
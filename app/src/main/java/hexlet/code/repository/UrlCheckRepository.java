@@ -1,29 +1,196 @@
 package hexlet.code.repository;
 
 import hexlet.code.model.UrlCheck;
+import hexlet.code.util.CheckEvents;
+import hexlet.code.util.Histogram;
+import hexlet.code.util.Metrics;
+import hexlet.code.util.PageCache;
+import hexlet.code.util.SearchIndex;
 
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 public class UrlCheckRepository extends BaseRepository {
+    private static final String CHECK_COLUMNS = "c.id, c.url_id, c.status_code, c.h1, c.title, c.description, "
+            + "c.etag, c.last_modified, c.created_at, c.last_confirmed_at, c.repeat_count, c.response_time_ms, "
+            + "c.ttfb_ms, c.download_ms";
+    private static final String INSERT_SQL = "INSERT INTO url_checks (url_id, status_code, h1, title, description, "
+            + "etag, last_modified, created_at, fingerprint, response_time_ms, ttfb_ms, download_ms) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String CONFIRM_SQL = "UPDATE url_checks SET last_confirmed_at = ?, "
+            + "repeat_count = repeat_count + 1, etag = ?, last_modified = ?, response_time_ms = ?, ttfb_ms = ?, "
+            + "download_ms = ? WHERE id = (SELECT latest_check_id FROM urls WHERE id = ?) AND fingerprint = ?";
+    private static final String TOUCH_URL_SQL = "UPDATE urls SET last_checked_at = ? WHERE id = ?";
+    private static final String UPDATE_LATEST_SQL = "UPDATE urls SET latest_check_id = ?, last_checked_at = ? "
+            + "WHERE id = ? AND (latest_check_id IS NULL OR latest_check_id < ?)";
+    private static final Histogram SAVE_TIME = queryTimer("url_check", "save");
+    private static final Histogram SAVE_ALL_TIME = queryTimer("url_check", "saveAll");
+    private static final Histogram GET_BY_URL_TIME = queryTimer("url_check", "getEntitiesByUrlId");
+    private static final Histogram GET_LATEST_TIME = queryTimer("url_check", "getLatestChecks");
+    private static final Histogram STREAM_BY_URL_TIME = queryTimer("url_check", "streamByUrlId");
+    private static final Histogram STREAM_LATEST_TIME = queryTimer("url_check", "streamLatest");
+    private static final LongAdder INSERTED = new LongAdder();
+    private static final LongAdder CONFIRMED = new LongAdder();
+    private static final Histogram GET_OVER_RETENTION_TIME = queryTimer("url_check", "getUrlIdsWithMoreChecksThan");
+
+    static {
+        Metrics.counter("app_checks_inserted_total", "Checks stored as a new row", INSERTED::sum);
+        Metrics.counter("app_checks_confirmed_total", "Checks identical to the latest one, stored as a repeat",
+                CONFIRMED::sum);
+    }
+
+    // A check identical to the latest one of its url only confirms that row; anything else is inserted.
     public static void save(UrlCheck check) throws SQLException {
-        var sql = "INSERT INTO url_checks (url_id, status_code, h1, title, description, created_at) "
-                + "VALUES (?, ?, ?, ?, ?, ?)";
-        try (var conn = getDataSource().getConnection();
-             var stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setLong(1, check.getUrlId());
-            stmt.setInt(2, check.getStatusCode());
-            stmt.setString(3, check.getH1());
-            stmt.setString(4, check.getTitle());
-            stmt.setString(5, check.getDescription());
+        var start = System.nanoTime();
+        boolean changed;
+        try {
+            try (var conn = getDataSource().getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    changed = !confirmAll(conn, List.of(check)).isEmpty();
+                    if (changed) {
+                        insert(conn, check);
+                        updateLatest(conn, check);
+                    }
+                    UrlResponseTimeRepository.record(conn, List.of(check));
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            PageCache.onCheckSaved(check.getUrlId());
+            if (changed) {
+                SearchIndex.onCheckSaved(check);
+            }
+            CheckEvents.onCheckSaved(check);
+        } finally {
+            SAVE_TIME.observeSince(start);
+        }
+    }
+
+    // Confirms or inserts all checks as JDBC batches in a single transaction.
+    public static void saveAll(List<UrlCheck> checks) throws SQLException {
+        if (checks.isEmpty()) {
+            return;
+        }
+        var start = System.nanoTime();
+        List<UrlCheck> changed;
+        try {
+            try (var conn = getDataSource().getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    changed = confirmAll(conn, checks);
+                    if (!changed.isEmpty()) {
+                        insertAll(conn, changed);
+                        updateLatestAll(conn, changed);
+                    }
+                    UrlResponseTimeRepository.record(conn, checks);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            checks.stream().map(UrlCheck::getUrlId).distinct().forEach(PageCache::onCheckSaved);
+            changed.forEach(SearchIndex::onCheckSaved);
+            checks.forEach(CheckEvents::onCheckSaved);
+        } finally {
+            SAVE_ALL_TIME.observeSince(start);
+        }
+    }
+
+    // Bumps the repeat count of the latest check of each url whose fingerprint matches, and returns the checks
+    // that did not match and still need a row of their own. Confirmed checks take over the id of that row.
+    private static List<UrlCheck> confirmAll(Connection conn, List<UrlCheck> checks) throws SQLException {
+        var confirmedAt = LocalDateTime.now();
+        var changed = new ArrayList<UrlCheck>();
+        var confirmed = new ArrayList<UrlCheck>();
+        try (var stmt = conn.prepareStatement(CONFIRM_SQL)) {
+            for (var check : checks) {
+                stmt.setTimestamp(1, Timestamp.valueOf(confirmedAt));
+                stmt.setString(2, check.getEtag());
+                stmt.setString(3, check.getLastModified());
+                setNullableInt(stmt, 4, check.getResponseTimeMs());
+                setNullableInt(stmt, 5, check.getTtfbMs());
+                setNullableInt(stmt, 6, check.getDownloadMs());
+                stmt.setLong(7, check.getUrlId());
+                stmt.setLong(8, check.getFingerprint());
+                stmt.addBatch();
+            }
+            var counts = stmt.executeBatch();
+            for (var i = 0; i < checks.size(); i++) {
+                if (counts[i] > 0) {
+                    confirmed.add(checks.get(i));
+                } else {
+                    changed.add(checks.get(i));
+                }
+            }
+        }
+        if (!confirmed.isEmpty()) {
+            touchUrls(conn, confirmed, confirmedAt);
+            loadConfirmed(conn, confirmed, confirmedAt);
+            CONFIRMED.add(confirmed.size());
+        }
+        INSERTED.add(changed.size());
+        return changed;
+    }
+
+    private static void touchUrls(Connection conn, List<UrlCheck> checks, LocalDateTime checkedAt)
+            throws SQLException {
+        try (var stmt = conn.prepareStatement(TOUCH_URL_SQL)) {
+            for (var check : checks) {
+                stmt.setTimestamp(1, Timestamp.valueOf(checkedAt));
+                stmt.setLong(2, check.getUrlId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void loadConfirmed(Connection conn, List<UrlCheck> checks, LocalDateTime confirmedAt)
+            throws SQLException {
+        var byUrlId = checks.stream().collect(Collectors.groupingBy(UrlCheck::getUrlId));
+        var placeholders = String.join(", ", Collections.nCopies(byUrlId.size(), "?"));
+        var sql = "SELECT c.url_id, c.id, c.created_at, c.repeat_count FROM urls u "
+                + "JOIN url_checks c ON c.id = u.latest_check_id WHERE u.id IN (" + placeholders + ")";
+        try (var stmt = conn.prepareStatement(sql)) {
+            var index = 1;
+            for (var urlId : byUrlId.keySet()) {
+                stmt.setLong(index++, urlId);
+            }
+            var resultSet = stmt.executeQuery();
+            while (resultSet.next()) {
+                for (var check : byUrlId.get(resultSet.getLong("url_id"))) {
+                    check.setId(resultSet.getLong("id"));
+                    check.setCreatedAt(resultSet.getTimestamp("created_at").toLocalDateTime());
+                    check.setRepeatCount(resultSet.getInt("repeat_count"));
+                    check.setLastConfirmedAt(confirmedAt);
+                }
+            }
+        }
+    }
+
+    private static void insert(Connection conn, UrlCheck check) throws SQLException {
+        try (var stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
             var createdAt = LocalDateTime.now();
-            stmt.setTimestamp(6, Timestamp.valueOf(createdAt));
+            bindInsert(stmt, check, createdAt);
 
             stmt.executeUpdate();
             var generatedKeys = stmt.getGeneratedKeys();
@@ -36,12 +203,93 @@ public class UrlCheckRepository extends BaseRepository {
         }
     }
 
+    private static void insertAll(Connection conn, List<UrlCheck> checks) throws SQLException {
+        try (var stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            var createdAt = LocalDateTime.now();
+            for (var check : checks) {
+                bindInsert(stmt, check, createdAt);
+                stmt.addBatch();
+            }
+
+            stmt.executeBatch();
+            var generatedKeys = stmt.getGeneratedKeys();
+            for (var check : checks) {
+                if (!generatedKeys.next()) {
+                    throw new SQLException("DB did not return generated key");
+                }
+                check.setId(generatedKeys.getLong(1));
+                check.setCreatedAt(createdAt);
+            }
+        }
+    }
+
+    private static void bindInsert(PreparedStatement stmt, UrlCheck check, LocalDateTime createdAt)
+            throws SQLException {
+        stmt.setLong(1, check.getUrlId());
+        stmt.setInt(2, check.getStatusCode());
+        stmt.setString(3, check.getH1());
+        stmt.setString(4, check.getTitle());
+        stmt.setString(5, check.getDescription());
+        stmt.setString(6, check.getEtag());
+        stmt.setString(7, check.getLastModified());
+        stmt.setTimestamp(8, Timestamp.valueOf(createdAt));
+        stmt.setLong(9, check.getFingerprint());
+        setNullableInt(stmt, 10, check.getResponseTimeMs());
+        setNullableInt(stmt, 11, check.getTtfbMs());
+        setNullableInt(stmt, 12, check.getDownloadMs());
+    }
+
+    private static void setNullableInt(PreparedStatement stmt, int index, Integer value) throws SQLException {
+        if (value == null) {
+            stmt.setNull(index, Types.INTEGER);
+        } else {
+            stmt.setInt(index, value);
+        }
+    }
+
+    private static Integer getNullableInt(ResultSet resultSet, String column) throws SQLException {
+        var value = resultSet.getInt(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    // Ids only grow, so a slower concurrent check can never move the pointer back to an older row.
+    private static void updateLatest(Connection conn, UrlCheck check) throws SQLException {
+        try (var stmt = conn.prepareStatement(UPDATE_LATEST_SQL)) {
+            bindUpdateLatest(stmt, check);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void updateLatestAll(Connection conn, List<UrlCheck> checks) throws SQLException {
+        try (var stmt = conn.prepareStatement(UPDATE_LATEST_SQL)) {
+            for (var check : checks) {
+                bindUpdateLatest(stmt, check);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private static void bindUpdateLatest(PreparedStatement stmt, UrlCheck check) throws SQLException {
+        stmt.setLong(1, check.getId());
+        stmt.setTimestamp(2, Timestamp.valueOf(check.getCreatedAt()));
+        stmt.setLong(3, check.getUrlId());
+        stmt.setLong(4, check.getId());
+    }
+
     public static List<UrlCheck> getEntitiesByUrlId(Long urlId) throws SQLException {
-        var sql = "SELECT id, status_code, h1, title, description, created_at "
-                + "FROM url_checks WHERE url_id=? ORDER BY id DESC";
+        return getEntitiesByUrlId(urlId, Integer.MAX_VALUE);
+    }
+
+    // The newest `limit` checks of a url, newest first.
+    public static List<UrlCheck> getEntitiesByUrlId(Long urlId, int limit) throws SQLException {
+        var sql = "SELECT id, status_code, h1, title, description, created_at, last_confirmed_at, repeat_count, "
+            + "response_time_ms, ttfb_ms, download_ms FROM url_checks WHERE url_id=? ORDER BY id DESC LIMIT ?";
+        var start = System.nanoTime();
         try (var conn = getDataSource().getConnection();
              var stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, urlId);
+            stmt.setInt(2, limit);
             var resultSet = stmt.executeQuery();
             var checks = new ArrayList<UrlCheck>();
             while (resultSet.next()) {
@@ -54,37 +302,137 @@ public class UrlCheckRepository extends BaseRepository {
                 var check = new UrlCheck(statusCode, title, h1, description, urlId);
                 check.setId(id);
                 check.setCreatedAt(createdAt);
+                check.setLastConfirmedAt(toLocalDateTime(resultSet.getTimestamp("last_confirmed_at")));
+                check.setRepeatCount(resultSet.getInt("repeat_count"));
+                setTimings(check, resultSet);
                 checks.add(check);
             }
             return checks;
+        } finally {
+            GET_BY_URL_TIME.observeSince(start);
+        }
+    }
+
+    // Streams the checks of one url, newest first, without holding them in memory; returns the number of rows.
+    public static long streamByUrlId(Long urlId, RowConsumer<UrlCheck> consumer) throws SQLException, IOException {
+        var sql = "SELECT " + CHECK_COLUMNS + " FROM url_checks c WHERE c.url_id = ? ORDER BY c.id DESC";
+        var start = System.nanoTime();
+        try {
+            return stream(sql, stmt -> stmt.setLong(1, urlId), UrlCheckRepository::mapCheck, consumer);
+        } finally {
+            STREAM_BY_URL_TIME.observeSince(start);
+        }
+    }
+
+    // Picks the given urls that have more than `count` checks. Each url is probed for its check at offset `count`
+    // on the (url_id, id) index, so at most count + 1 index entries are read per url and none are aggregated.
+    public static List<Long> getUrlIdsWithMoreChecksThan(Collection<Long> urlIds, int count) throws SQLException {
+        if (urlIds.isEmpty()) {
+            return List.of();
+        }
+        var placeholders = String.join(", ", Collections.nCopies(urlIds.size(), "?"));
+        var sql = "SELECT u.id FROM urls u WHERE (SELECT c.id FROM url_checks c WHERE c.url_id = u.id "
+                + "ORDER BY c.id DESC LIMIT 1 OFFSET ?) IS NOT NULL AND u.id IN (" + placeholders + ") ORDER BY u.id";
+        var start = System.nanoTime();
+        try (var conn = getDataSource().getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, count);
+            var index = 2;
+            for (var urlId : urlIds) {
+                stmt.setLong(index++, urlId);
+            }
+            var resultSet = stmt.executeQuery();
+            var result = new ArrayList<Long>();
+            while (resultSet.next()) {
+                result.add(resultSet.getLong(1));
+            }
+            return result;
+        } finally {
+            GET_OVER_RETENTION_TIME.observeSince(start);
+        }
+    }
+
+    // Streams the latest check of every url; returns the number of rows.
+    public static long streamLatest(RowConsumer<UrlCheck> consumer) throws SQLException, IOException {
+        var sql = "SELECT " + CHECK_COLUMNS + " FROM urls u JOIN url_checks c ON c.id = u.latest_check_id";
+        var start = System.nanoTime();
+        try {
+            return stream(sql, UrlCheckRepository::mapCheck, consumer);
+        } finally {
+            STREAM_LATEST_TIME.observeSince(start);
         }
     }
 
+    public static Optional<UrlCheck> findLatest(Long urlId) throws SQLException {
+        return Optional.ofNullable(getLatestChecks(List.of(urlId)).get(urlId));
+    }
+
     public static Map<Long, UrlCheck> getLatestChecks() throws SQLException {
-        var sql = "SELECT id, url_id, status_code, h1, title, description, created_at "
-                + "FROM (SELECT id, url_id, status_code, h1, title, description, created_at,"
-                + "      ROW_NUMBER() OVER (PARTITION BY url_id ORDER BY created_at DESC, id DESC) AS rn"
-                + "      FROM url_checks"
-                + ") t "
-                + "WHERE t.rn = 1";
+        var sql = "SELECT " + CHECK_COLUMNS + " FROM urls u JOIN url_checks c ON c.id = u.latest_check_id";
+        var start = System.nanoTime();
+        try {
+            return getLatestChecks(sql, List.of());
+        } finally {
+            GET_LATEST_TIME.observeSince(start);
+        }
+    }
+
+    public static Map<Long, UrlCheck> getLatestChecks(Collection<Long> urlIds) throws SQLException {
+        var start = System.nanoTime();
+        try {
+            if (urlIds.isEmpty()) {
+                return new HashMap<>();
+            }
+            var placeholders = String.join(", ", Collections.nCopies(urlIds.size(), "?"));
+            var sql = "SELECT " + CHECK_COLUMNS + " FROM urls u JOIN url_checks c ON c.id = u.latest_check_id "
+                    + "WHERE u.id IN (" + placeholders + ")";
+            return getLatestChecks(sql, urlIds);
+        } finally {
+            GET_LATEST_TIME.observeSince(start);
+        }
+    }
+
+    private static Map<Long, UrlCheck> getLatestChecks(String sql, Collection<Long> params) throws SQLException {
         try (var conn = getDataSource().getConnection();
              var stmt = conn.prepareStatement(sql)) {
+            var index = 1;
+            for (var param : params) {
+                stmt.setLong(index++, param);
+            }
             var resultSet = stmt.executeQuery();
             var checks = new HashMap<Long, UrlCheck>();
             while (resultSet.next()) {
-                var id = resultSet.getLong("id");
-                var urlId = resultSet.getLong("url_id");
-                var statusCode = resultSet.getInt("status_code");
-                var h1 = resultSet.getString("h1");
-                var title = resultSet.getString("title");
-                var description = resultSet.getString("description");
-                var createdAt = resultSet.getTimestamp("created_at").toLocalDateTime();
-                var check = new UrlCheck(statusCode, title, h1, description, urlId);
-                check.setId(id);
-                check.setCreatedAt(createdAt);
-                checks.put(urlId, check);
+                var check = mapCheck(resultSet);
+                checks.put(check.getUrlId(), check);
             }
             return checks;
         }
     }
+
+    private static UrlCheck mapCheck(ResultSet resultSet) throws SQLException {
+        var statusCode = resultSet.getInt("status_code");
+        var h1 = resultSet.getString("h1");
+        var title = resultSet.getString("title");
+        var description = resultSet.getString("description");
+        var urlId = resultSet.getLong("url_id");
+        var check = new UrlCheck(statusCode, title, h1, description, urlId);
+        check.setId(resultSet.getLong("id"));
+        check.setEtag(resultSet.getString("etag"));
+        check.setLastModified(resultSet.getString("last_modified"));
+        check.setCreatedAt(resultSet.getTimestamp("created_at").toLocalDateTime());
+        check.setLastConfirmedAt(toLocalDateTime(resultSet.getTimestamp("last_confirmed_at")));
+        check.setRepeatCount(resultSet.getInt("repeat_count"));
+        setTimings(check, resultSet);
+        return check;
+    }
+
+    private static void setTimings(UrlCheck check, ResultSet resultSet) throws SQLException {
+        check.setResponseTimeMs(getNullableInt(resultSet, "response_time_ms"));
+        check.setTtfbMs(getNullableInt(resultSet, "ttfb_ms"));
+        check.setDownloadMs(getNullableInt(resultSet, "download_ms"));
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
 }
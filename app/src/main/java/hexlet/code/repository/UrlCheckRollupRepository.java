@@ -0,0 +1,182 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.UrlCheck;
+import hexlet.code.model.UrlCheckRollup;
+import hexlet.code.util.Histogram;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+public class UrlCheckRollupRepository extends BaseRepository {
+    private static final String ROLLUP_COLUMNS = "url_id, period_start, check_count, status_2xx, status_3xx, "
+            + "status_4xx, status_5xx, status_other, change_count, last_fingerprint";
+    private static final String ADD_SQL = "UPDATE url_check_rollups SET check_count = check_count + ?, "
+            + "status_2xx = status_2xx + ?, status_3xx = status_3xx + ?, status_4xx = status_4xx + ?, "
+            + "status_5xx = status_5xx + ?, status_other = status_other + ?, change_count = change_count + ?, "
+            + "last_fingerprint = ? WHERE url_id = ? AND period_start = ?";
+    private static final String INSERT_SQL = "INSERT INTO url_check_rollups (check_count, status_2xx, status_3xx, "
+            + "status_4xx, status_5xx, status_other, change_count, last_fingerprint, url_id, period_start) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final Histogram GET_BY_URL_TIME = queryTimer("url_check_rollup", "getByUrlId");
+    private static final Histogram ROLL_UP_TIME = queryTimer("url_check_rollup", "rollUp");
+
+    // Newest periods first.
+    public static List<UrlCheckRollup> getByUrlId(Long urlId, int limit) throws SQLException {
+        var sql = "SELECT " + ROLLUP_COLUMNS + " FROM url_check_rollups WHERE url_id = ? "
+                + "ORDER BY period_start DESC LIMIT ?";
+        var start = System.nanoTime();
+        try (var conn = getDataSource().getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, urlId);
+            stmt.setInt(2, limit);
+            var resultSet = stmt.executeQuery();
+            var rollups = new ArrayList<UrlCheckRollup>();
+            while (resultSet.next()) {
+                rollups.add(mapRollup(resultSet));
+            }
+            return rollups;
+        } finally {
+            GET_BY_URL_TIME.observeSince(start);
+        }
+    }
+
+    // Folds at most batchSize of the oldest check rows beyond the newest `keep` ones into the rollups of their
+    // period and deletes them, all in one short transaction. A row counts once plus its repeats. Returns the
+    // number of rows rolled up; less than batchSize means the url is within its retention.
+    public static int rollUp(Long urlId, int keep, int batchSize, ChronoUnit period) throws SQLException {
+        var start = System.nanoTime();
+        try (var conn = getDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                var checks = findOldestBeyond(conn, urlId, keep, batchSize);
+                if (!checks.isEmpty()) {
+                    var rollups = aggregate(urlId, checks, findLastFingerprint(conn, urlId), period);
+                    for (var rollup : rollups) {
+                        add(conn, rollup);
+                    }
+                    delete(conn, urlId, checks.getFirst().getId(), checks.getLast().getId());
+                }
+                conn.commit();
+                return checks.size();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } finally {
+            ROLL_UP_TIME.observeSince(start);
+        }
+    }
+
+    private static List<UrlCheck> findOldestBeyond(Connection conn, Long urlId, int keep, int batchSize)
+            throws SQLException {
+        var sql = "SELECT id, url_id, status_code, h1, title, description, created_at, repeat_count FROM url_checks "
+                + "WHERE url_id = ? AND id <= (SELECT id FROM url_checks WHERE url_id = ? "
+                + "ORDER BY id DESC LIMIT 1 OFFSET ?) ORDER BY id LIMIT ?";
+        try (var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, urlId);
+            stmt.setLong(2, urlId);
+            stmt.setInt(3, keep);
+            stmt.setInt(4, batchSize);
+            var resultSet = stmt.executeQuery();
+            var checks = new ArrayList<UrlCheck>();
+            while (resultSet.next()) {
+                var check = new UrlCheck(resultSet.getInt("status_code"), resultSet.getString("title"),
+                        resultSet.getString("h1"), resultSet.getString("description"), urlId);
+                check.setId(resultSet.getLong("id"));
+                check.setCreatedAt(resultSet.getTimestamp("created_at").toLocalDateTime());
+                check.setRepeatCount(resultSet.getInt("repeat_count"));
+                checks.add(check);
+            }
+            return checks;
+        }
+    }
+
+    private static Long findLastFingerprint(Connection conn, Long urlId) throws SQLException {
+        var sql = "SELECT last_fingerprint FROM url_check_rollups WHERE url_id = ? "
+                + "ORDER BY period_start DESC LIMIT 1";
+        try (var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, urlId);
+            var resultSet = stmt.executeQuery();
+            if (resultSet.next()) {
+                var fingerprint = resultSet.getLong(1);
+                return resultSet.wasNull() ? null : fingerprint;
+            }
+            return null;
+        }
+    }
+
+    // Checks come oldest first, so the rollups come out in period order as well. A check whose fingerprint
+    // differs from the one before it counts as a change.
+    private static List<UrlCheckRollup> aggregate(Long urlId, List<UrlCheck> checks, Long lastFingerprint,
+                                                  ChronoUnit period) {
+        var rollups = new LinkedHashMap<LocalDateTime, UrlCheckRollup>();
+        var previous = lastFingerprint;
+        for (var check : checks) {
+            var periodStart = check.getCreatedAt().truncatedTo(period);
+            var fingerprint = check.getFingerprint();
+            rollups.computeIfAbsent(periodStart, key -> new UrlCheckRollup(urlId, key))
+                    .add(check.getStatusCode(), 1 + check.getRepeatCount(),
+                            previous != null && previous != fingerprint, fingerprint);
+            previous = fingerprint;
+        }
+        return List.copyOf(rollups.values());
+    }
+
+    private static void add(Connection conn, UrlCheckRollup rollup) throws SQLException {
+        try (var update = conn.prepareStatement(ADD_SQL)) {
+            bindRollup(update, rollup);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (var insert = conn.prepareStatement(INSERT_SQL)) {
+            bindRollup(insert, rollup);
+            insert.executeUpdate();
+        }
+    }
+
+    // Both statements take the counts first and the key last.
+    private static void bindRollup(PreparedStatement stmt, UrlCheckRollup rollup) throws SQLException {
+        stmt.setInt(1, rollup.getCheckCount());
+        stmt.setInt(2, rollup.getStatus2xx());
+        stmt.setInt(3, rollup.getStatus3xx());
+        stmt.setInt(4, rollup.getStatus4xx());
+        stmt.setInt(5, rollup.getStatus5xx());
+        stmt.setInt(6, rollup.getStatusOther());
+        stmt.setInt(7, rollup.getChangeCount());
+        stmt.setLong(8, rollup.getLastFingerprint());
+        stmt.setLong(9, rollup.getUrlId());
+        stmt.setTimestamp(10, Timestamp.valueOf(rollup.getPeriodStart()));
+    }
+
+    // Everything between the first and last id of the batch belongs to it, so the delete is one index range.
+    private static void delete(Connection conn, Long urlId, Long firstId, Long lastId) throws SQLException {
+        try (var stmt = conn.prepareStatement("DELETE FROM url_checks WHERE url_id = ? AND id BETWEEN ? AND ?")) {
+            stmt.setLong(1, urlId);
+            stmt.setLong(2, firstId);
+            stmt.setLong(3, lastId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static UrlCheckRollup mapRollup(ResultSet resultSet) throws SQLException {
+        var rollup = new UrlCheckRollup(resultSet.getLong("url_id"),
+                resultSet.getTimestamp("period_start").toLocalDateTime());
+        rollup.setCheckCount(resultSet.getInt("check_count"));
+        rollup.setStatus2xx(resultSet.getInt("status_2xx"));
+        rollup.setStatus3xx(resultSet.getInt("status_3xx"));
+        rollup.setStatus4xx(resultSet.getInt("status_4xx"));
+        rollup.setStatus5xx(resultSet.getInt("status_5xx"));
+        rollup.setStatusOther(resultSet.getInt("status_other"));
+        rollup.setChangeCount(resultSet.getInt("change_count"));
+        return rollup;
+    }
+}
@@ -1,36 +1,238 @@
 package hexlet.code.repository;
 
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import hexlet.code.model.Url;
+import hexlet.code.util.Env;
+import hexlet.code.util.Histogram;
+import hexlet.code.util.LruCache;
+import hexlet.code.util.PageCache;
+import hexlet.code.util.SearchIndex;
 
 public class UrlRepository extends BaseRepository {
+    // Rows never change after insert, so cached entities only have to be dropped when rows are deleted.
+    private static final int CACHE_SIZE = Env.getInt("URL_CACHE_SIZE", 10_000);
+    private static final LruCache<Long, Url> BY_ID = new LruCache<>(CACHE_SIZE);
+    private static final LruCache<String, Url> BY_NAME = new LruCache<>(CACHE_SIZE);
+    private static final Histogram SAVE_TIME = queryTimer("url", "save");
+    private static final Histogram SAVE_IF_ABSENT_TIME = queryTimer("url", "saveIfAbsent");
+    private static final Histogram FIND_TIME = queryTimer("url", "find");
+    private static final Histogram FIND_ALL_TIME = queryTimer("url", "findAll");
+    private static final Histogram FIND_BY_NAME_TIME = queryTimer("url", "findByName");
+    private static final Histogram GET_ENTITIES_TIME = queryTimer("url", "getEntities");
+    private static final Histogram GET_PAGE_AFTER_TIME = queryTimer("url", "getPageAfter");
+    private static final Histogram GET_PAGE_BEFORE_TIME = queryTimer("url", "getPageBefore");
+    private static final Histogram GET_DUE_TIME = queryTimer("url", "getDueForCheck");
+    private static final Histogram MARK_FAILED_TIME = queryTimer("url", "markCheckFailed");
+    private static final Histogram COUNT_TIME = queryTimer("url", "count");
+    private static final Histogram REMOVE_ALL_TIME = queryTimer("url", "removeAll");
+    private static final Histogram STREAM_ALL_TIME = queryTimer("url", "streamAll");
+    private static final Histogram SAVE_ALL_IF_ABSENT_TIME = queryTimer("url", "saveAllIfAbsent");
+    private static final int IMPORT_BATCH_SIZE = Env.getInt("IMPORT_BATCH_SIZE", 1000);
+
     public static void save(Url url) throws SQLException {
         var sql = "INSERT INTO urls (name, created_at) VALUES (?, ?)";
-        try (var conn = getDataSource().getConnection();
-                var stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setString(1, url.getName());
-            var createdAt = LocalDateTime.now();
-            stmt.setTimestamp(2, Timestamp.valueOf(createdAt));
+        var start = System.nanoTime();
+        try {
+            try (var conn = getDataSource().getConnection();
+                    var stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, url.getName());
+                var createdAt = LocalDateTime.now();
+                stmt.setTimestamp(2, Timestamp.valueOf(createdAt));
 
-            stmt.executeUpdate();
-            var generatedKeys = stmt.getGeneratedKeys();
-            if (generatedKeys.next()) {
-                url.setId(generatedKeys.getLong(1));
-                url.setCreatedAt(createdAt);
+                stmt.executeUpdate();
+                var generatedKeys = stmt.getGeneratedKeys();
+                if (generatedKeys.next()) {
+                    url.setId(generatedKeys.getLong(1));
+                    url.setCreatedAt(createdAt);
+                } else {
+                    throw new SQLException("DB did not return generated key");
+                }
+            }
+            cache(url);
+            PageCache.onUrlAdded();
+        } finally {
+            SAVE_TIME.observeSince(start);
+        }
+    }
+
+    // Inserts the url unless one with the same name exists; either way the entity gets the stored id and date.
+    // Returns true when a new row was created.
+    public static boolean saveIfAbsent(Url url) throws SQLException {
+        var start = System.nanoTime();
+        try {
+            var created = insertIfAbsent(url);
+            cache(url);
+            if (created) {
+                PageCache.onUrlAdded();
+            }
+            return created;
+        } finally {
+            SAVE_IF_ABSENT_TIME.observeSince(start);
+        }
+    }
+
+    private static boolean insertIfAbsent(Url url) throws SQLException {
+        try (var conn = getDataSource().getConnection()) {
+            var createdAt = LocalDateTime.now();
+            if (isPostgres(conn)) {
+                var sql = "WITH ins AS ("
+                        + "  INSERT INTO urls (name, created_at) VALUES (?, ?)"
+                        + "  ON CONFLICT (name) DO NOTHING RETURNING id, created_at"
+                        + ") "
+                        + "SELECT id, created_at, TRUE AS created FROM ins "
+                        + "UNION ALL "
+                        + "SELECT id, created_at, FALSE AS created FROM urls "
+                        + "WHERE name = ? AND NOT EXISTS (SELECT 1 FROM ins)";
+                try (var stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, url.getName());
+                    stmt.setTimestamp(2, Timestamp.valueOf(createdAt));
+                    stmt.setString(3, url.getName());
+                    var resultSet = stmt.executeQuery();
+                    if (resultSet.next()) {
+                        url.setId(resultSet.getLong("id"));
+                        url.setCreatedAt(resultSet.getTimestamp("created_at").toLocalDateTime());
+                        return resultSet.getBoolean("created");
+                    }
+                }
             } else {
-                throw new SQLException("DB did not return generated key");
+                // Same form as the H2 branch of saveAllIfAbsent, so an existing name costs no failed insert.
+                var sql = "INSERT INTO urls (name, created_at) "
+                        + "SELECT CAST(? AS VARCHAR(255)), CAST(? AS TIMESTAMP) "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM urls WHERE name = ?)";
+                try (var stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, url.getName());
+                    stmt.setTimestamp(2, Timestamp.valueOf(createdAt));
+                    stmt.setString(3, url.getName());
+                    if (stmt.executeUpdate() > 0) {
+                        var generatedKeys = stmt.getGeneratedKeys();
+                        if (generatedKeys.next()) {
+                            url.setId(generatedKeys.getLong(1));
+                            url.setCreatedAt(createdAt);
+                            return true;
+                        }
+                        throw new SQLException("DB did not return generated key");
+                    }
+                } catch (SQLException e) {
+                    // Only when a concurrent insert of the name commits between the check and the insert.
+                    if (!isUniqueViolation(e)) {
+                        throw e;
+                    }
+                }
+            }
+            // The name is taken, possibly by a concurrent insert committed after our statement started.
+            var existing = findByName(conn, url.getName())
+                    .orElseThrow(() -> new SQLException("Url " + url.getName() + " conflicts but cannot be found"));
+            url.setId(existing.getId());
+            url.setCreatedAt(existing.getCreatedAt());
+            return false;
+        }
+    }
+
+    // Inserts every name that is not stored yet in JDBC batches, one transaction per batch;
+    // returns how many rows were added.
+    public static int saveAllIfAbsent(Collection<String> names) throws SQLException {
+        if (names.isEmpty()) {
+            return 0;
+        }
+        var start = System.nanoTime();
+        var added = 0;
+        try (var conn = getDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            var postgres = isPostgres(conn);
+            var batch = new ArrayList<String>(IMPORT_BATCH_SIZE);
+            for (var name : names) {
+                batch.add(name);
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    added += insertBatch(conn, postgres, batch);
+                    batch.clear();
+                }
             }
+            added += insertBatch(conn, postgres, batch);
+        } finally {
+            SAVE_ALL_IF_ABSENT_TIME.observeSince(start);
+        }
+        if (added > 0) {
+            PageCache.onUrlAdded();
+        }
+        return added;
+    }
+
+    // Without ON CONFLICT a concurrent insert of the same name fails the batch; running it again skips that name.
+    private static int insertBatch(Connection conn, boolean postgres, List<String> names) throws SQLException {
+        if (names.isEmpty()) {
+            return 0;
+        }
+        try {
+            return tryInsertBatch(conn, postgres, names);
+        } catch (SQLException e) {
+            conn.rollback();
+            if (postgres || !isUniqueViolation(e)) {
+                throw e;
+            }
+        }
+        try {
+            return tryInsertBatch(conn, postgres, names);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        }
+    }
+
+    private static int tryInsertBatch(Connection conn, boolean postgres, List<String> names) throws SQLException {
+        var sql = postgres
+                ? "INSERT INTO urls (name, created_at) VALUES (?, ?) ON CONFLICT (name) DO NOTHING"
+                : "INSERT INTO urls (name, created_at) "
+                        + "SELECT CAST(? AS VARCHAR(255)), CAST(? AS TIMESTAMP) "
+                        + "WHERE NOT EXISTS (SELECT 1 FROM urls WHERE name = ?)";
+        var createdAt = Timestamp.valueOf(LocalDateTime.now());
+        try (var stmt = conn.prepareStatement(sql)) {
+            for (var name : names) {
+                stmt.setString(1, name);
+                stmt.setTimestamp(2, createdAt);
+                if (!postgres) {
+                    stmt.setString(3, name);
+                }
+                stmt.addBatch();
+            }
+            var added = 0;
+            for (var count : stmt.executeBatch()) {
+                added += Math.max(count, 0);
+            }
+            conn.commit();
+            return added;
         }
     }
 
     public static Optional<Url> find(Long id) throws SQLException {
+        var start = System.nanoTime();
+        try {
+            var cached = BY_ID.get(id);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+            var url = load(id);
+            url.ifPresent(UrlRepository::cache);
+            return url;
+        } finally {
+            FIND_TIME.observeSince(start);
+        }
+    }
+
+    private static Optional<Url> load(Long id) throws SQLException {
         var sql = "SELECT name, created_at FROM urls WHERE id = ?";
         try (var conn = getDataSource().getConnection();
                 var stmt = conn.prepareStatement(sql)) {
@@ -48,10 +250,66 @@ public class UrlRepository extends BaseRepository {
         }
     }
 
+    // The urls among the ids that exist, by id; whatever the cache does not hold is loaded with one query.
+    public static Map<Long, Url> findAll(Collection<Long> ids) throws SQLException {
+        var start = System.nanoTime();
+        try {
+            var urls = new HashMap<Long, Url>();
+            var missing = new ArrayList<Long>();
+            for (var id : ids) {
+                var cached = BY_ID.get(id);
+                if (cached != null) {
+                    urls.put(id, cached);
+                } else {
+                    missing.add(id);
+                }
+            }
+            if (missing.isEmpty()) {
+                return urls;
+            }
+            var placeholders = String.join(", ", Collections.nCopies(missing.size(), "?"));
+            var sql = "SELECT id, name, created_at FROM urls WHERE id IN (" + placeholders + ")";
+            try (var conn = getDataSource().getConnection();
+                    var stmt = conn.prepareStatement(sql)) {
+                var index = 1;
+                for (var id : missing) {
+                    stmt.setLong(index++, id);
+                }
+                var resultSet = stmt.executeQuery();
+                while (resultSet.next()) {
+                    var url = new Url(resultSet.getString("name"));
+                    url.setId(resultSet.getLong("id"));
+                    url.setCreatedAt(resultSet.getTimestamp("created_at").toLocalDateTime());
+                    cache(url);
+                    urls.put(url.getId(), url);
+                }
+            }
+            return urls;
+        } finally {
+            FIND_ALL_TIME.observeSince(start);
+        }
+    }
+
     public static Optional<Url> findByName(String name) throws SQLException {
+        var start = System.nanoTime();
+        try {
+            var cached = BY_NAME.get(name);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+            try (var conn = getDataSource().getConnection()) {
+                var url = findByName(conn, name);
+                url.ifPresent(UrlRepository::cache);
+                return url;
+            }
+        } finally {
+            FIND_BY_NAME_TIME.observeSince(start);
+        }
+    }
+
+    private static Optional<Url> findByName(Connection conn, String name) throws SQLException {
         var sql = "SELECT id, created_at FROM urls WHERE name = ?";
-        try (var conn = getDataSource().getConnection();
-             var stmt = conn.prepareStatement(sql)) {
+        try (var stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, name);
             var resultSet = stmt.executeQuery();
             if (resultSet.next()) {
@@ -68,6 +326,7 @@ public class UrlRepository extends BaseRepository {
 
     public static List<Url> getEntities() throws SQLException {
         var sql = "SELECT id, name, created_at FROM urls ORDER BY id";
+        var start = System.nanoTime();
         try (var conn = getDataSource().getConnection();
              var stmt = conn.prepareStatement(sql)) {
             var resultSet = stmt.executeQuery();
@@ -82,14 +341,152 @@ public class UrlRepository extends BaseRepository {
                 urls.add(url);
             }
             return urls;
+        } finally {
+            GET_ENTITIES_TIME.observeSince(start);
         }
     }
 
-    public static void removeAll() throws SQLException {
-        var sql = "DELETE FROM urls";
+    // Keyset pages: rows strictly after (or before) the cursor id, in ascending id order.
+    public static List<Url> getPageAfter(long afterId, int limit) throws SQLException {
+        var sql = "SELECT id, name, created_at FROM urls WHERE id > ? ORDER BY id LIMIT ?";
+        var start = System.nanoTime();
+        try {
+            return getPage(sql, afterId, limit);
+        } finally {
+            GET_PAGE_AFTER_TIME.observeSince(start);
+        }
+    }
+
+    public static List<Url> getPageBefore(long beforeId, int limit) throws SQLException {
+        var sql = "SELECT id, name, created_at FROM urls WHERE id < ? ORDER BY id DESC LIMIT ?";
+        var start = System.nanoTime();
+        try {
+            var urls = getPage(sql, beforeId, limit);
+            Collections.reverse(urls);
+            return urls;
+        } finally {
+            GET_PAGE_BEFORE_TIME.observeSince(start);
+        }
+    }
+
+    private static List<Url> getPage(String sql, long cursor, int limit) throws SQLException {
         try (var conn = getDataSource().getConnection();
              var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, cursor);
+            stmt.setInt(2, limit);
+            return readUrls(stmt.executeQuery());
+        }
+    }
+
+    // Streams every url in id order without holding them in memory; returns the number of rows.
+    public static long streamAll(RowConsumer<Url> consumer) throws SQLException, IOException {
+        var sql = "SELECT id, name, created_at FROM urls ORDER BY id";
+        var start = System.nanoTime();
+        try {
+            return stream(sql, UrlRepository::mapUrl, consumer);
+        } finally {
+            STREAM_ALL_TIME.observeSince(start);
+        }
+    }
+
+    private static List<Url> readUrls(ResultSet resultSet) throws SQLException {
+        var urls = new ArrayList<Url>();
+        while (resultSet.next()) {
+            urls.add(mapUrl(resultSet));
+        }
+        return urls;
+    }
+
+    private static Url mapUrl(ResultSet resultSet) throws SQLException {
+        var url = new Url(resultSet.getString("name"));
+        url.setId(resultSet.getLong("id"));
+        url.setCreatedAt(resultSet.getTimestamp("created_at").toLocalDateTime());
+        return url;
+    }
+
+    // Urls never checked come first, then those whose last check is older than the threshold, oldest first.
+    // Failed checks count as checks here, so an unreachable url waits its turn like any other.
+    // Both halves are served by the index on last_checked_at.
+    public static List<Url> getDueForCheck(LocalDateTime checkedBefore, int limit) throws SQLException {
+        var neverChecked = "SELECT id, name, created_at FROM urls WHERE last_checked_at IS NULL ORDER BY id LIMIT ?";
+        var stale = "SELECT id, name, created_at FROM urls WHERE last_checked_at < ? ORDER BY last_checked_at LIMIT ?";
+        var start = System.nanoTime();
+        try (var conn = getDataSource().getConnection()) {
+            List<Url> urls;
+            try (var stmt = conn.prepareStatement(neverChecked)) {
+                stmt.setInt(1, limit);
+                urls = readUrls(stmt.executeQuery());
+            }
+            if (urls.size() < limit) {
+                try (var stmt = conn.prepareStatement(stale)) {
+                    stmt.setTimestamp(1, Timestamp.valueOf(checkedBefore));
+                    stmt.setInt(2, limit - urls.size());
+                    urls.addAll(readUrls(stmt.executeQuery()));
+                }
+            }
+            return urls;
+        } finally {
+            GET_DUE_TIME.observeSince(start);
+        }
+    }
+
+    // Records a check attempt that produced no check row, e.g. because the site could not be reached.
+    public static void markCheckFailed(Long id, LocalDateTime attemptedAt) throws SQLException {
+        var sql = "UPDATE urls SET last_checked_at = ? WHERE id = ?";
+        var start = System.nanoTime();
+        try (var conn = getDataSource().getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(attemptedAt));
+            stmt.setLong(2, id);
             stmt.executeUpdate();
+        } finally {
+            MARK_FAILED_TIME.observeSince(start);
+        }
+    }
+
+    public static long count() throws SQLException {
+        var sql = "SELECT COUNT(*) FROM urls";
+        var start = System.nanoTime();
+        try (var conn = getDataSource().getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            var resultSet = stmt.executeQuery();
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } finally {
+            COUNT_TIME.observeSince(start);
+        }
+    }
+
+    public static void removeAll() throws SQLException {
+        var sql = "DELETE FROM urls";
+        var start = System.nanoTime();
+        try {
+            try (var conn = getDataSource().getConnection();
+                 var stmt = conn.prepareStatement(sql)) {
+                stmt.executeUpdate();
+            }
+            clearCache();
+            PageCache.clear();
+            SearchIndex.clear();
+        } finally {
+            REMOVE_ALL_TIME.observeSince(start);
         }
     }
+
+    private static void cache(Url url) {
+        BY_ID.put(url.getId(), url);
+        BY_NAME.put(url.getName(), url);
+    }
+
+    public static void clearCache() {
+        BY_ID.clear();
+        BY_NAME.clear();
+    }
+
+    public static long getCacheHits() {
+        return BY_ID.getHits() + BY_NAME.getHits();
+    }
+
+    public static long getCacheMisses() {
+        return BY_ID.getMisses() + BY_NAME.getMisses();
+    }
 }
@@ -0,0 +1,120 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.UrlCheck;
+import hexlet.code.util.Histogram;
+import hexlet.code.util.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TreeMap;
+
+// One response time histogram per url and day. Checks are added in the transaction that saves them, and any
+// range of days is read back as a single merged histogram.
+public class UrlResponseTimeRepository extends BaseRepository {
+    private static final String SELECT_SQL = "SELECT buckets FROM url_response_times "
+            + "WHERE url_id = ? AND period_start = ? FOR UPDATE";
+    private static final String UPDATE_SQL = "UPDATE url_response_times SET sample_count = ?, buckets = ? "
+            + "WHERE url_id = ? AND period_start = ?";
+    private static final String INSERT_EMPTY_SQL = "INSERT INTO url_response_times (url_id, period_start, "
+            + "sample_count, buckets) VALUES (?, ?, 0, '')";
+    private static final Histogram GET_SINCE_TIME = queryTimer("url_response_time", "getSince");
+    private static final Histogram DELETE_TIME = queryTimer("url_response_time", "deleteOlderThan");
+
+    // Urls are merged in id order, so concurrent transactions lock their rows in the same order.
+    static void record(Connection conn, List<UrlCheck> checks) throws SQLException {
+        var today = LocalDate.now().atStartOfDay();
+        var added = new TreeMap<Long, LatencyHistogram>();
+        for (var check : checks) {
+            if (check.getResponseTimeMs() != null) {
+                added.computeIfAbsent(check.getUrlId(), key -> new LatencyHistogram())
+                        .record(check.getResponseTimeMs());
+            }
+        }
+        var postgres = !added.isEmpty() && isPostgres(conn);
+        for (var entry : added.entrySet()) {
+            merge(conn, postgres, entry.getKey(), today, entry.getValue());
+        }
+    }
+
+    // A missing row is created empty and then locked like an existing one, so two transactions adding the first
+    // samples of a day can neither lose each other's counts nor fail on the primary key.
+    private static void merge(Connection conn, boolean postgres, Long urlId, LocalDateTime periodStart,
+                              LatencyHistogram added) throws SQLException {
+        var merged = lock(conn, urlId, periodStart);
+        if (merged == null) {
+            insertEmpty(conn, postgres, urlId, periodStart);
+            merged = lock(conn, urlId, periodStart);
+        }
+        if (merged == null) {
+            throw new SQLException("Response times of url " + urlId + " were created but cannot be found");
+        }
+        merged.merge(added);
+        try (var stmt = conn.prepareStatement(UPDATE_SQL)) {
+            stmt.setLong(1, merged.getCount());
+            stmt.setString(2, merged.encode());
+            stmt.setLong(3, urlId);
+            stmt.setTimestamp(4, Timestamp.valueOf(periodStart));
+            stmt.executeUpdate();
+        }
+    }
+
+    private static LatencyHistogram lock(Connection conn, Long urlId, LocalDateTime periodStart)
+            throws SQLException {
+        try (var select = conn.prepareStatement(SELECT_SQL)) {
+            select.setLong(1, urlId);
+            select.setTimestamp(2, Timestamp.valueOf(periodStart));
+            var resultSet = select.executeQuery();
+            return resultSet.next() ? LatencyHistogram.decode(resultSet.getString("buckets")) : null;
+        }
+    }
+
+    // A failed statement aborts the whole transaction on PostgreSQL, hence ON CONFLICT there. H2 only fails the
+    // statement when a concurrent transaction inserted the row first.
+    private static void insertEmpty(Connection conn, boolean postgres, Long urlId, LocalDateTime periodStart)
+            throws SQLException {
+        var sql = postgres ? INSERT_EMPTY_SQL + " ON CONFLICT (url_id, period_start) DO NOTHING" : INSERT_EMPTY_SQL;
+        try (var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, urlId);
+            stmt.setTimestamp(2, Timestamp.valueOf(periodStart));
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            if (postgres || !isUniqueViolation(e)) {
+                throw e;
+            }
+        }
+    }
+
+    public static LatencyHistogram getSince(Long urlId, LocalDateTime since) throws SQLException {
+        var sql = "SELECT buckets FROM url_response_times WHERE url_id = ? AND period_start >= ?";
+        var start = System.nanoTime();
+        try (var conn = getDataSource().getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, urlId);
+            stmt.setTimestamp(2, Timestamp.valueOf(since));
+            var resultSet = stmt.executeQuery();
+            var histogram = new LatencyHistogram();
+            while (resultSet.next()) {
+                histogram.merge(LatencyHistogram.decode(resultSet.getString("buckets")));
+            }
+            return histogram;
+        } finally {
+            GET_SINCE_TIME.observeSince(start);
+        }
+    }
+
+    public static int deleteOlderThan(LocalDateTime cutoff) throws SQLException {
+        var sql = "DELETE FROM url_response_times WHERE period_start < ?";
+        var start = System.nanoTime();
+        try (var conn = getDataSource().getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+            return stmt.executeUpdate();
+        } finally {
+            DELETE_TIME.observeSince(start);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package hexlet.code.service;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import hexlet.code.dto.BulkCheckProgress;
+import hexlet.code.model.Url;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.Env;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public final class BulkCheckService {
+    private static final int CONCURRENCY = Env.getInt("CHECK_CONCURRENCY", 32);
+    private static final int PAGE_SIZE = 500;
+    private static final AtomicReference<BulkCheckProgress> CURRENT = new AtomicReference<>();
+
+    private BulkCheckService() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // Returns false when a sweep is already running.
+    public static boolean start() {
+        var current = CURRENT.get();
+        if (current != null && current.isRunning()) {
+            return false;
+        }
+        var progress = new BulkCheckProgress();
+        if (!CURRENT.compareAndSet(current, progress)) {
+            return false;
+        }
+        Thread.ofVirtual().name("bulk-check").start(() -> BaseRepository.runInCheckLane(() -> sweep(progress)));
+        return true;
+    }
+
+    public static Optional<BulkCheckProgress> getProgress() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    private static void sweep(BulkCheckProgress progress) {
+        var permits = new Semaphore(CONCURRENCY);
+        try {
+            progress.addTotal((int) UrlRepository.count());
+            var cursor = 0L;
+            List<Url> urls = UrlRepository.getPageAfter(cursor, PAGE_SIZE);
+            while (!urls.isEmpty()) {
+                for (var url : urls) {
+                    permits.acquire();
+                    var submitted = UrlCheckService.submit(url, success -> {
+                        if (success) {
+                            progress.markDone();
+                        } else {
+                            progress.markFailed();
+                        }
+                        permits.release();
+                    });
+                    if (submitted != UrlCheckService.Submission.STARTED) {
+                        progress.markSkipped();
+                        permits.release();
+                    }
+                }
+                cursor = urls.getLast().getId();
+                urls = UrlRepository.getPageAfter(cursor, PAGE_SIZE);
+            }
+            permits.acquire(CONCURRENCY);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            log.error("Bulk check could not load urls", e);
+        } finally {
+            progress.finish();
+            log.info("Bulk check finished: {} done, {} failed, {} skipped in {} ms ({} checks/s)",
+                    progress.getDone(), progress.getFailed(), progress.getSkipped(),
+                    progress.getElapsedMillis(), String.format("%.1f", progress.getChecksPerSecond()));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package hexlet.code.service;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import hexlet.code.model.Url;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlCheckRollupRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.repository.UrlResponseTimeRepository;
+import hexlet.code.util.Env;
+import hexlet.code.util.PageCache;
+import lombok.extern.slf4j.Slf4j;
+
+// Keeps the newest CHECK_RETENTION_RAW checks of every url and folds older ones into hourly or daily rollups;
+// daily response time histograms are kept for RESPONSE_TIME_RETENTION_DAYS.
+// Work is done in transactions of at most CHECK_PRUNE_BATCH_SIZE checks with a pause in between, so neither
+// locks nor connections are held for long.
+@Slf4j
+public final class CheckPruner {
+    private static final int RAW_RETENTION = Math.max(1, Env.getInt("CHECK_RETENTION_RAW", 100));
+    private static final int BATCH_SIZE = Math.max(1, Env.getInt("CHECK_PRUNE_BATCH_SIZE", 500));
+    private static final long PAUSE_MILLIS = Env.getInt("CHECK_PRUNE_PAUSE_MS", 50);
+    private static final ChronoUnit PERIOD = Env.getBoolean("CHECK_ROLLUP_HOURLY", false)
+            ? ChronoUnit.HOURS : ChronoUnit.DAYS;
+    private static final int SHOWN_ROLLUPS = 30;
+    private static final int URL_PAGE_SIZE = 500;
+    private static final int RESPONSE_TIME_RETENTION_DAYS = Math.max(1, Env.getInt("RESPONSE_TIME_RETENTION_DAYS", 30));
+    private static ScheduledExecutorService executor;
+
+    private CheckPruner() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static int getRawRetention() {
+        return RAW_RETENTION;
+    }
+
+    public static int getShownRollups() {
+        return SHOWN_ROLLUPS;
+    }
+
+    public static synchronized void start(Duration interval) {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("check-pruner").daemon()
+                .factory());
+        var millis = interval.toMillis();
+        executor.scheduleWithFixedDelay(() -> BaseRepository.runInCheckLane(CheckPruner::run),
+                millis, millis, TimeUnit.MILLISECONDS);
+        log.info("Pruning checks every {}, keeping the last {} per url", interval, RAW_RETENTION);
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static void run() {
+        try {
+            var pruned = prune(RAW_RETENTION);
+            if (pruned > 0) {
+                log.info("Rolled up {} old check rows", pruned);
+            }
+            var cutoff = LocalDate.now().minusDays(RESPONSE_TIME_RETENTION_DAYS).atStartOfDay();
+            UrlResponseTimeRepository.deleteOlderThan(cutoff);
+        } catch (SQLException e) {
+            log.error("Pruning checks failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Walks the urls in id order, URL_PAGE_SIZE at a time, and rolls up those over the limit.
+    // Returns the number of check rows rolled up.
+    static long prune(int keep) throws SQLException, InterruptedException {
+        var total = 0L;
+        var urls = UrlRepository.getPageAfter(0, URL_PAGE_SIZE);
+        while (!urls.isEmpty()) {
+            var ids = urls.stream().map(Url::getId).toList();
+            for (var urlId : UrlCheckRepository.getUrlIdsWithMoreChecksThan(ids, keep)) {
+                total += pruneUrl(urlId, keep);
+            }
+            urls = UrlRepository.getPageAfter(urls.getLast().getId(), URL_PAGE_SIZE);
+        }
+        return total;
+    }
+
+    private static long pruneUrl(Long urlId, int keep) throws SQLException, InterruptedException {
+        var total = 0L;
+        int rolledUp;
+        do {
+            rolledUp = UrlCheckRollupRepository.rollUp(urlId, keep, BATCH_SIZE, PERIOD);
+            total += rolledUp;
+            if (PAUSE_MILLIS > 0) {
+                Thread.sleep(PAUSE_MILLIS);
+            }
+        } while (rolledUp == BATCH_SIZE);
+        PageCache.onCheckSaved(urlId);
+        return total;
+    }
+}
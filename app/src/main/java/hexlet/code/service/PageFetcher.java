@@ -0,0 +1,308 @@
+package hexlet.code.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.util.CachingResolverProvider;
+import hexlet.code.util.Env;
+import hexlet.code.util.HeadExtractor;
+import hexlet.code.util.Histogram;
+import hexlet.code.util.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public final class PageFetcher {
+    private static final int MAX_BODY_BYTES = Env.getInt("CHECK_MAX_BODY_BYTES", 1024 * 1024);
+    private static final Duration CONNECT_TIMEOUT = Duration.ofMillis(Env.getInt("CHECK_CONNECT_TIMEOUT_MS", 5_000));
+    private static final Duration READ_TIMEOUT = Duration.ofMillis(Env.getInt("CHECK_READ_TIMEOUT_MS", 10_000));
+    private static final long TOTAL_TIMEOUT_MS = Env.getInt("CHECK_TOTAL_TIMEOUT_MS", 20_000);
+    // Reading out a short remainder lets the connection go back to the pool instead of being closed.
+    private static final int DRAIN_LIMIT_BYTES = 64 * 1024;
+    private static final int NOT_MODIFIED = 304;
+    // Widths of the url_checks columns the fetched values are stored in.
+    private static final int MAX_TEXT_LENGTH = 255;
+    private static final int MAX_ETAG_LENGTH = 255;
+    private static final int MAX_LAST_MODIFIED_LENGTH = 64;
+    private static final Histogram PARSE_TIME = Metrics.histogram("app_check_parse_duration_seconds",
+            "Time spent reading the body of a checked page and extracting its head", "");
+    // One client for all checks: it keeps idle connections per host and negotiates HTTP/2 over TLS.
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("fetch-deadlines").daemon().factory());
+    private static final LongAdder REQUESTS = new LongAdder();
+    private static final LongAdder HTTP2_RESPONSES = new LongAdder();
+    private static final LongAdder TIMEOUTS = new LongAdder();
+    private static final LongAdder FAILURES = new LongAdder();
+    private static final LongAdder DRAINED = new LongAdder();
+
+    static {
+        Metrics.counter("app_fetch_requests_total", "Check requests sent", REQUESTS::sum);
+        Metrics.counter("app_fetch_http2_responses_total", "Check responses received over HTTP/2",
+                HTTP2_RESPONSES::sum);
+        Metrics.counter("app_fetch_timeouts_total", "Check requests that hit a timeout", TIMEOUTS::sum);
+        Metrics.counter("app_fetch_failures_total", "Check requests that failed without a response",
+                FAILURES::sum);
+        Metrics.counter("app_fetch_drained_total", "Responses read to the end so their connection is kept",
+                DRAINED::sum);
+        Metrics.counter("app_dns_cache_hits_total", "DNS lookups answered from the cache",
+                CachingResolverProvider::getHits);
+        Metrics.counter("app_dns_cache_misses_total", "DNS lookups passed to the system resolver",
+                CachingResolverProvider::getMisses);
+        Metrics.gauge("app_dns_cache_size", "Host names in the DNS cache", CachingResolverProvider::getSize);
+    }
+
+    private PageFetcher() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public record Validators(String etag, String lastModified) {
+        public static final Validators NONE = new Validators(null, null);
+    }
+
+    // Time to first byte runs until the response headers are in, following redirects included; the JDK client
+    // does not report connection setup on its own, so it is part of it.
+    public record Timing(long ttfbMillis, long downloadMillis) {
+        public static final Timing NONE = new Timing(0, 0);
+
+        public long totalMillis() {
+            return ttfbMillis + downloadMillis;
+        }
+    }
+
+    public record Result(int statusCode, HeadExtractor.Fields fields, Validators validators, long bytesRead,
+                         boolean parsed, boolean notModified, Timing timing) {
+        Result withTiming(Timing measured) {
+            return new Result(statusCode, fields, validators, bytesRead, parsed, notModified, measured);
+        }
+
+        public UrlCheck toCheck(Long urlId) {
+            var check = new UrlCheck(statusCode, truncate(fields.title()), truncate(fields.h1()),
+                    fields.description(), urlId);
+            // A cut validator would never match again, so one that does not fit is not kept at all.
+            check.setEtag(fits(validators.etag(), MAX_ETAG_LENGTH) ? validators.etag() : null);
+            check.setLastModified(fits(validators.lastModified(), MAX_LAST_MODIFIED_LENGTH)
+                    ? validators.lastModified() : null);
+            check.setResponseTimeMs((int) timing.totalMillis());
+            check.setTtfbMs((int) timing.ttfbMillis());
+            check.setDownloadMs((int) timing.downloadMillis());
+            return check;
+        }
+    }
+
+    // Cuts a title or h1 to its column, without splitting a surrogate pair.
+    static String truncate(String text) {
+        if (fits(text, MAX_TEXT_LENGTH)) {
+            return text;
+        }
+        var end = Character.isHighSurrogate(text.charAt(MAX_TEXT_LENGTH - 1)) ? MAX_TEXT_LENGTH - 1 : MAX_TEXT_LENGTH;
+        return text.substring(0, end);
+    }
+
+    private static boolean fits(String value, int length) {
+        return value == null || value.length() <= length;
+    }
+
+    public static Result fetch(Url url) throws IOException, InterruptedException {
+        return fetch(url, null);
+    }
+
+    // With a previous check the request is made conditional; a 304 answer reuses that check's data as is.
+    // READ_TIMEOUT bounds the wait for the response headers, TOTAL_TIMEOUT_MS the whole exchange.
+    public static Result fetch(Url url, UrlCheck previous) throws IOException, InterruptedException {
+        var uri = URI.create(url.getName());
+        var request = HttpRequest.newBuilder(uri)
+                .timeout(READ_TIMEOUT)
+                .header("Accept", "text/html,application/xhtml+xml;q=0.9,*/*;q=0.1");
+        // Plain-text HTTP/2 would need an upgrade round trip most servers do not support.
+        if (!"https".equalsIgnoreCase(uri.getScheme())) {
+            request.version(HttpClient.Version.HTTP_1_1);
+        }
+        if (previous != null && previous.getEtag() != null) {
+            request.header("If-None-Match", previous.getEtag());
+        }
+        if (previous != null && previous.getLastModified() != null) {
+            request.header("If-Modified-Since", previous.getLastModified());
+        }
+        REQUESTS.increment();
+        var sent = System.nanoTime();
+        var deadline = sent + TimeUnit.MILLISECONDS.toNanos(TOTAL_TIMEOUT_MS);
+        HttpResponse<InputStream> response;
+        try {
+            response = CLIENT.send(request.GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (HttpTimeoutException e) {
+            TIMEOUTS.increment();
+            throw e;
+        } catch (IOException e) {
+            FAILURES.increment();
+            throw e;
+        }
+        if (response.version() == HttpClient.Version.HTTP_2) {
+            HTTP2_RESPONSES.increment();
+        }
+        var headersReceived = System.nanoTime();
+        var body = response.body();
+        var remaining = deadline - headersReceived;
+        // Closing the body aborts a read that is still blocked when the total timeout runs out.
+        var watchdog = DEADLINES.schedule(() -> closeQuietly(body), Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+        try (body) {
+            var untimed = read(response, body, previous);
+            var result = untimed.withTiming(new Timing(TimeUnit.NANOSECONDS.toMillis(headersReceived - sent),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - headersReceived)));
+            log.debug("Fetched {}: status {}, {} bytes read, parsed: {}, not modified: {}, {}, {} ms",
+                    url.getName(), result.statusCode(), result.bytesRead(), result.parsed(), result.notModified(),
+                    response.version(), result.timing().totalMillis());
+            return result;
+        } catch (IOException e) {
+            if (watchdog.isDone()) {
+                TIMEOUTS.increment();
+                throw new HttpTimeoutException("Reading " + url.getName() + " took longer than "
+                        + TOTAL_TIMEOUT_MS + " ms");
+            }
+            throw e;
+        } finally {
+            watchdog.cancel(false);
+        }
+    }
+
+    private static Result read(HttpResponse<InputStream> response, InputStream content, UrlCheck previous)
+            throws IOException {
+        var validators = new Validators(header(response, "ETag"), header(response, "Last-Modified"));
+        if (response.statusCode() == NOT_MODIFIED && previous != null) {
+            var fields = new HeadExtractor.Fields(previous.getTitle(), previous.getH1(), previous.getDescription());
+            var kept = new Validators(
+                    validators.etag() == null ? previous.getEtag() : validators.etag(),
+                    validators.lastModified() == null ? previous.getLastModified() : validators.lastModified());
+            drain(content);
+            return new Result(previous.getStatusCode(), fields, kept, 0, false, true, Timing.NONE);
+        }
+        var contentType = header(response, "Content-Type");
+        if (!isHtml(contentType)) {
+            drain(content);
+            return new Result(response.statusCode(), HeadExtractor.Fields.EMPTY, validators, 0, false, false,
+                    Timing.NONE);
+        }
+        var body = new CappedInputStream(content, MAX_BODY_BYTES);
+        var reader = new InputStreamReader(body, charsetOf(contentType));
+        var parseStart = System.nanoTime();
+        var fields = HeadExtractor.extract(reader);
+        PARSE_TIME.observeSince(parseStart);
+        drain(content);
+        return new Result(response.statusCode(), fields, validators, body.getCount(), true, false, Timing.NONE);
+    }
+
+    private static void drain(InputStream content) throws IOException {
+        var buffer = new byte[8192];
+        var total = 0;
+        while (total <= DRAIN_LIMIT_BYTES) {
+            var read = content.read(buffer);
+            if (read == -1) {
+                DRAINED.increment();
+                return;
+            }
+            total += read;
+        }
+    }
+
+    private static void closeQuietly(InputStream content) {
+        try {
+            content.close();
+        } catch (IOException e) {
+            log.debug("Failed to close a timed out response", e);
+        }
+    }
+
+    private static String header(HttpResponse<?> response, String name) {
+        return response.headers().firstValue(name).filter(value -> !value.isBlank()).orElse(null);
+    }
+
+    // A missing Content-Type is given the benefit of the doubt, anything else must say it is HTML.
+    static boolean isHtml(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return true;
+        }
+        var mediaType = contentType.toLowerCase(Locale.ROOT);
+        return mediaType.startsWith("text/html") || mediaType.startsWith("application/xhtml+xml");
+    }
+
+    static Charset charsetOf(String contentType) {
+        if (contentType != null) {
+            for (var param : contentType.split(";")) {
+                var pair = param.trim().split("=", 2);
+                if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("charset")) {
+                    try {
+                        return Charset.forName(pair[1].trim().replace("\"", ""));
+                    } catch (IllegalArgumentException e) {
+                        log.debug("Unknown charset in {}", contentType);
+                    }
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    // Reports end of stream once the cap is reached, so a huge or endless body costs at most the cap.
+    private static final class CappedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        CappedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void close() {
+            // The parser closes its input when done; the response body stays open so its rest can be drained.
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (count >= limit) {
+                return -1;
+            }
+            var value = super.read();
+            if (value != -1) {
+                count++;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (count >= limit) {
+                return -1;
+            }
+            var read = super.read(buffer, offset, (int) Math.min(length, limit - count));
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package hexlet.code.service;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import hexlet.code.model.Url;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.Env;
+import lombok.extern.slf4j.Slf4j;
+
+// Re-checks every url once per interval. Each tick picks a bounded batch of due urls and spreads them
+// over the following tick with random jitter, while keeping requests to one host at most
+// RECHECK_HOST_RATE_PER_MINUTE apart.
+@Slf4j
+public final class RecheckScheduler {
+    private static final long TICK_MILLIS = TimeUnit.SECONDS.toMillis(Env.getInt("RECHECK_TICK_SECONDS", 30));
+    private static final int BATCH_SIZE = Env.getInt("RECHECK_BATCH_SIZE", 200);
+    private static final int HOST_RATE_PER_MINUTE = Math.max(1, Env.getInt("RECHECK_HOST_RATE_PER_MINUTE", 6));
+    private static final long HOST_SPACING_MILLIS = TimeUnit.MINUTES.toMillis(1) / HOST_RATE_PER_MINUTE;
+    private static final Map<String, Long> NEXT_HOST_SLOT = new ConcurrentHashMap<>();
+    private static final Set<Long> SCHEDULED = ConcurrentHashMap.newKeySet();
+    private static ScheduledExecutorService executor;
+    private static Duration interval;
+
+    private RecheckScheduler() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static synchronized void start(Duration recheckInterval) {
+        if (executor != null) {
+            return;
+        }
+        interval = recheckInterval;
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("recheck").daemon().factory());
+        var initialDelay = ThreadLocalRandom.current().nextLong(TICK_MILLIS);
+        executor.scheduleWithFixedDelay(() -> BaseRepository.runInCheckLane(RecheckScheduler::tick),
+                initialDelay, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        log.info("Re-checking urls every {} with at most {} requests per host per minute",
+                recheckInterval, HOST_RATE_PER_MINUTE);
+    }
+
+    public static synchronized void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        SCHEDULED.clear();
+        NEXT_HOST_SLOT.clear();
+    }
+
+    private static void tick() {
+        try {
+            var now = System.currentTimeMillis();
+            NEXT_HOST_SLOT.values().removeIf(slot -> slot < now);
+            var due = UrlRepository.getDueForCheck(LocalDateTime.now().minus(interval), BATCH_SIZE);
+            var scheduled = 0;
+            for (var url : due) {
+                if (UrlCheckService.isPending(url.getId()) || !SCHEDULED.add(url.getId())) {
+                    continue;
+                }
+                var jitter = ThreadLocalRandom.current().nextLong(TICK_MILLIS);
+                var slot = reserveSlot(UrlCheckService.hostOf(url), now + jitter);
+                executor.schedule(() -> submit(url), slot - now, TimeUnit.MILLISECONDS);
+                scheduled++;
+            }
+            log.debug("Scheduled {} of {} due urls", scheduled, due.size());
+        } catch (SQLException e) {
+            log.error("Could not load urls due for a re-check", e);
+        } catch (RuntimeException e) {
+            log.error("Re-check tick failed", e);
+        }
+    }
+
+    private static void submit(Url url) {
+        SCHEDULED.remove(url.getId());
+        UrlCheckService.submit(url);
+    }
+
+    // Returns the first moment not earlier than the given one at which the host may be contacted again.
+    static long reserveSlot(String host, long earliest) {
+        return NEXT_HOST_SLOT.compute(host, (key, next) ->
+                next == null || next <= earliest ? earliest + HOST_SPACING_MILLIS : next + HOST_SPACING_MILLIS)
+                - HOST_SPACING_MILLIS;
+    }
+}
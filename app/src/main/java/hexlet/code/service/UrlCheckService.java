@@ -0,0 +1,284 @@
+package hexlet.code.service;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.UnresolvedAddressException;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.net.ssl.SSLException;
+
+import hexlet.code.model.Url;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.CheckEvents;
+import hexlet.code.util.Env;
+import hexlet.code.util.Histogram;
+import hexlet.code.util.LruCache;
+import hexlet.code.util.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+// Checks run in their own lane: at most CHECK_WORKERS at a time, at most CHECK_QUEUE_LIMIT waiting, and with
+// database connections from the check pool, so that a storm of checks leaves page views alone.
+// A host gets at most CHECK_PER_HOST_CONCURRENCY workers. Further checks of a busy host wait in a queue of
+// their own instead of taking a worker, and the worker that finishes a check of that host picks up the next one.
+@Slf4j
+public final class UrlCheckService {
+    private static final int PER_HOST_CONCURRENCY = Math.max(1, Env.getInt("CHECK_PER_HOST_CONCURRENCY", 2));
+    private static final int WORKERS = Math.max(1, Env.getInt("CHECK_WORKERS", 64));
+    private static final int QUEUE_LIMIT = Math.max(1, Env.getInt("CHECK_QUEUE_LIMIT", 1000));
+    private static final int FAILURE_LIMIT = Math.max(1, Env.getInt("CHECK_FAILURES_KEPT", 10_000));
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(WORKERS, WORKERS,
+            0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_LIMIT),
+            Thread.ofVirtual().name("check-", 0).factory());
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final Set<Long> PENDING = ConcurrentHashMap.newKeySet();
+    private static final LruCache<Long, String> FAILURES = new LruCache<>(FAILURE_LIMIT);
+    // Guarded by itself. A host is only present while one of its checks runs, so idle hosts cost nothing.
+    private static final Map<String, HostLane> HOSTS = new HashMap<>();
+    // The head is extracted while the body streams in, so fetching and parsing cannot be timed apart here;
+    // app_check_parse_duration_seconds has the reading and extracting part on its own.
+    private static final Histogram CHECK_TIME = Metrics.histogram("app_check_duration_seconds",
+            "Time from sending a check request until its response is read and its head extracted", "");
+    private static final Histogram SAVE_TIME = Metrics.histogram("app_check_save_duration_seconds",
+            "Time spent handing a finished check to the database or the write-behind buffer", "");
+    private static int waitingForHost;
+
+    private record Job(Url url, String host, Consumer<Boolean> callback) {
+    }
+
+    private static final class HostLane {
+        private final Deque<Job> waiting = new ArrayDeque<>();
+        private int running;
+    }
+
+    static {
+        Metrics.gauge("app_check_queue_depth", "Checks waiting for a free check worker",
+                () -> EXECUTOR.getQueue().size());
+        Metrics.gauge("app_check_host_waiting", "Checks waiting because their host already has enough checks running",
+                UrlCheckService::getWaitingForHost);
+        Metrics.gauge("app_check_hosts_active", "Hosts with a check running", UrlCheckService::getActiveHosts);
+        Metrics.gauge("app_check_workers_busy", "Check workers currently running a check", EXECUTOR::getActiveCount);
+        Metrics.gauge("app_check_workers_max", "Checks allowed to run at the same time", () -> WORKERS);
+        Metrics.counter("app_checks_rejected_total", "Checks turned away because the check queue was full",
+                REJECTED::sum);
+    }
+
+    public enum Submission {
+        STARTED,
+        ALREADY_PENDING,
+        REJECTED
+    }
+
+    private UrlCheckService() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static Submission submit(Url url) {
+        return submit(url, null);
+    }
+
+    // The callback, if given, receives true once the check is stored and false if it failed. It is not called
+    // when the check is not started.
+    public static Submission submit(Url url, Consumer<Boolean> callback) {
+        if (!PENDING.add(url.getId())) {
+            return Submission.ALREADY_PENDING;
+        }
+        FAILURES.remove(url.getId());
+        var job = new Job(url, hostOf(url), callback);
+        boolean runNow;
+        synchronized (HOSTS) {
+            var lane = HOSTS.computeIfAbsent(job.host(), key -> new HostLane());
+            runNow = lane.running < PER_HOST_CONCURRENCY;
+            if (runNow) {
+                lane.running++;
+            } else if (waitingForHost < QUEUE_LIMIT) {
+                lane.waiting.add(job);
+                waitingForHost++;
+                return Submission.STARTED;
+            }
+        }
+        if (runNow) {
+            try {
+                EXECUTOR.execute(() -> work(job));
+                return Submission.STARTED;
+            } catch (RejectedExecutionException e) {
+                release(job.host());
+            }
+        }
+        PENDING.remove(url.getId());
+        REJECTED.increment();
+        log.warn("Check queue is full ({} waiting), not checking {}", QUEUE_LIMIT, url.getName());
+        return Submission.REJECTED;
+    }
+
+    public static boolean isPending(Long urlId) {
+        return PENDING.contains(urlId);
+    }
+
+    public static int getPendingCount() {
+        return PENDING.size();
+    }
+
+    public static Optional<String> getFailure(Long urlId) {
+        return Optional.ofNullable(FAILURES.get(urlId));
+    }
+
+    public static int getWaitingForHost() {
+        synchronized (HOSTS) {
+            return waitingForHost;
+        }
+    }
+
+    public static int getActiveHosts() {
+        synchronized (HOSTS) {
+            return HOSTS.size();
+        }
+    }
+
+    // Runs the job and then, while holding on to the host's slot, whatever else is waiting for the same host.
+    private static void work(Job first) {
+        var job = first;
+        while (job != null) {
+            var current = job;
+            try {
+                BaseRepository.runInCheckLane(() -> run(current.url(), current.callback()));
+            } finally {
+                job = finish(current.host());
+            }
+        }
+    }
+
+    // Hands the host's slot to its next waiting job, or gives it up. Returns the job that now holds the slot.
+    private static Job finish(String host) {
+        synchronized (HOSTS) {
+            var lane = HOSTS.get(host);
+            var next = lane.waiting.poll();
+            if (next != null) {
+                waitingForHost--;
+                return next;
+            }
+            release(host);
+            return null;
+        }
+    }
+
+    // Gives back a slot nobody waits for. A job no worker accepted gives its slot back here too: jobs only wait
+    // while every slot of their host is in use, so the workers already running for the host drain its queue.
+    private static void release(String host) {
+        synchronized (HOSTS) {
+            var lane = HOSTS.get(host);
+            lane.running--;
+            if (lane.running == 0) {
+                HOSTS.remove(host);
+            }
+        }
+    }
+
+    private static void run(Url url, Consumer<Boolean> callback) {
+        CheckEvents.onCheckStarted(url.getId());
+        String failure;
+        try {
+            var previous = UrlCheckRepository.findLatest(url.getId()).orElse(null);
+            var checkStart = System.nanoTime();
+            var check = PageFetcher.fetch(url, previous).toCheck(url.getId());
+            CHECK_TIME.observeSince(checkStart);
+            var saveStart = System.nanoTime();
+            var buffered = UrlCheckWriter.write(check, stored -> onWritten(url, stored, callback));
+            SAVE_TIME.observeSince(saveStart);
+            if (!buffered) {
+                onWritten(url, true, callback);
+            }
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = "Проверка прервана";
+        } catch (IOException e) {
+            log.info("Failed to fetch {}: {}", url.getName(), e.toString());
+            failure = describe(e);
+        } catch (IllegalArgumentException e) {
+            log.info("Cannot fetch {}: {}", url.getName(), e.getMessage());
+            failure = "Некорректный адрес";
+        } catch (Exception e) {
+            log.error("Check of {} failed", url.getName(), e);
+            failure = String.valueOf(e.getMessage());
+        }
+        fail(url, failure, callback);
+    }
+
+    // What the user is told about a fetch that failed without a response. The JDK client reports a host that
+    // does not resolve as a ConnectException caused by UnresolvedAddressException.
+    static String describe(IOException e) {
+        if (e instanceof HttpTimeoutException) {
+            return "Сайт не ответил вовремя";
+        }
+        if (e instanceof UnknownHostException || e.getCause() instanceof UnknownHostException
+                || e.getCause() instanceof UnresolvedAddressException) {
+            return "Домен не найден";
+        }
+        if (e instanceof ConnectException) {
+            return "Сайт не принимает соединения";
+        }
+        if (e instanceof SSLException) {
+            return "Не удалось установить защищённое соединение";
+        }
+        return "Соединение с сайтом прервано";
+    }
+
+    // A url stays pending until its check is stored, which in write-behind mode is when its batch commits.
+    private static void onWritten(Url url, boolean stored, Consumer<Boolean> callback) {
+        if (!stored) {
+            fail(url, "Не удалось сохранить результат проверки", callback);
+            return;
+        }
+        PENDING.remove(url.getId());
+        if (callback != null) {
+            callback.accept(true);
+        }
+    }
+
+    private static void fail(Url url, String failure, Consumer<Boolean> callback) {
+        FAILURES.put(url.getId(), failure);
+        markFailed(url);
+        PENDING.remove(url.getId());
+        CheckEvents.onCheckFailed(url.getId(), failure);
+        if (callback != null) {
+            callback.accept(false);
+        }
+    }
+
+    // Without this a url that keeps failing would stay due and be picked by every recheck tick.
+    private static void markFailed(Url url) {
+        try {
+            UrlRepository.markCheckFailed(url.getId(), LocalDateTime.now());
+        } catch (SQLException e) {
+            log.warn("Could not record the failed check of {}", url.getName(), e);
+        }
+    }
+
+    static String hostOf(Url url) {
+        try {
+            var host = URI.create(url.getName()).getHost();
+            return host == null ? url.getName() : host;
+        } catch (IllegalArgumentException e) {
+            return url.getName();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package hexlet.code.service;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.util.Env;
+import hexlet.code.util.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+// Saves finished checks either directly or, once started, through a bounded buffer that is flushed
+// as JDBC batches when it holds BATCH_SIZE checks or when the oldest one has waited FLUSH_INTERVAL_MS.
+@Slf4j
+public final class UrlCheckWriter {
+    private static final int BATCH_SIZE = Env.getInt("CHECK_WRITE_BATCH_SIZE", 500);
+    private static final int FLUSH_INTERVAL_MS = Env.getInt("CHECK_WRITE_FLUSH_MS", 1000);
+    private static final int MAX_ATTEMPTS = 3;
+    // Doubled after every failed attempt, so a deadlock or a failover has time to clear.
+    private static final int RETRY_BACKOFF_MS = Env.getInt("CHECK_WRITE_RETRY_MS", 200);
+    private static final BlockingQueue<Write> BUFFER =
+            new ArrayBlockingQueue<>(Env.getInt("CHECK_WRITE_BUFFER", 10_000));
+    private static final LongAdder DROPPED = new LongAdder();
+    private static volatile boolean running;
+    private static Thread flusher;
+
+    // A buffered check and who to tell once it is stored (true) or given up on (false).
+    private record Write(UrlCheck check, Consumer<Boolean> onWritten) {
+    }
+
+    static {
+        Metrics.counter("app_checks_dropped_total", "Buffered checks given up on after failed flushes",
+                DROPPED::sum);
+    }
+
+    private UrlCheckWriter() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = Thread.ofPlatform().name("check-writer").daemon()
+                .start(() -> BaseRepository.runInCheckLane(UrlCheckWriter::flushLoop));
+        log.info("Write-behind for checks enabled: batches of {}, flushed every {} ms", BATCH_SIZE, FLUSH_INTERVAL_MS);
+    }
+
+    // Writes out everything still buffered before returning.
+    public static synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        var rest = new ArrayList<Write>();
+        BUFFER.drainTo(rest);
+        BaseRepository.runInCheckLane(() -> flush(rest));
+        log.info("Write-behind for checks stopped");
+    }
+
+    public static boolean isWriteBehind() {
+        return running;
+    }
+
+    public static int getBuffered() {
+        return BUFFER.size();
+    }
+
+    public static void write(UrlCheck check) throws SQLException, InterruptedException {
+        write(check, null);
+    }
+
+    // Returns true when the check was buffered; onWritten, if given, is then called by the flusher once the batch
+    // holding the check commits or is given up on. Otherwise the check is stored when this returns.
+    // Blocks while the buffer is full, which slows producers down to the rate the database can take.
+    public static boolean write(UrlCheck check, Consumer<Boolean> onWritten) throws SQLException,
+            InterruptedException {
+        if (running) {
+            var write = new Write(check, onWritten);
+            BUFFER.put(write);
+            // Lost a race with stop(): nobody is going to flush the buffer any more.
+            if (running || !BUFFER.remove(write)) {
+                return true;
+            }
+        }
+        UrlCheckRepository.save(check);
+        return false;
+    }
+
+    private static void flushLoop() {
+        var batch = new ArrayList<Write>(BATCH_SIZE);
+        while (running || !BUFFER.isEmpty()) {
+            try {
+                var first = BUFFER.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                var deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+                while (batch.size() < BATCH_SIZE) {
+                    var next = BUFFER.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    // A batch that keeps failing is written check by check, so a single bad row (a url deleted since it was
+    // fetched, say) only costs that check.
+    private static void flush(List<Write> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        var checks = batch.stream().map(Write::check).toList();
+        for (var attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            try {
+                UrlCheckRepository.saveAll(checks);
+                log.debug("Flushed {} checks", batch.size());
+                notify(batch, true);
+                return;
+            } catch (SQLException e) {
+                log.warn("Flushing {} checks failed (attempt {} of {})", batch.size(), attempt, MAX_ATTEMPTS, e);
+            }
+            if (attempt < MAX_ATTEMPTS && !backOff(attempt)) {
+                break;
+            }
+        }
+        log.warn("Writing {} checks one by one", batch.size());
+        var dropped = 0;
+        for (var write : batch) {
+            var stored = true;
+            try {
+                UrlCheckRepository.save(write.check());
+            } catch (SQLException e) {
+                log.error("Dropped the check of url {}", write.check().getUrlId(), e);
+                stored = false;
+                dropped++;
+            }
+            notify(List.of(write), stored);
+        }
+        DROPPED.add(dropped);
+    }
+
+    // False when interrupted, in which case the remaining attempts are skipped.
+    private static boolean backOff(int attempt) {
+        try {
+            Thread.sleep((long) RETRY_BACKOFF_MS << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void notify(List<Write> batch, boolean stored) {
+        for (var write : batch) {
+            if (write.onWritten() != null) {
+                try {
+                    write.onWritten().accept(stored);
+                } catch (RuntimeException e) {
+                    log.error("Handling the written check of url {} failed", write.check().getUrlId(), e);
+                }
+            }
+        }
+    }
+}
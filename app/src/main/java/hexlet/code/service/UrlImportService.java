@@ -0,0 +1,63 @@
+package hexlet.code.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import hexlet.code.dto.ImportSummary;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.UrlNormalizer;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public final class UrlImportService {
+    private UrlImportService() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // Accepts one url per line or CSV with the url in the first column; blank lines are ignored.
+    // Entries are normalized in parallel and deduplicated before anything is sent to the database.
+    public static ImportSummary importUrls(Reader input) throws IOException, SQLException {
+        var start = System.currentTimeMillis();
+        List<String> entries;
+        try (var reader = new BufferedReader(input)) {
+            entries = reader.lines()
+                    .map(UrlImportService::firstColumn)
+                    .filter(entry -> !entry.isEmpty())
+                    .toList();
+        }
+        var normalized = entries.parallelStream()
+                .map(UrlImportService::normalize)
+                .filter(Objects::nonNull)
+                .toList();
+        var unique = normalized.stream().collect(Collectors.toCollection(LinkedHashSet::new));
+        var added = UrlRepository.saveAllIfAbsent(unique);
+        var summary = new ImportSummary(added, normalized.size() - added, entries.size() - normalized.size(),
+                System.currentTimeMillis() - start);
+        log.info("Imported {} urls: {} added, {} duplicates, {} invalid, {} urls/s", summary.getTotal(),
+                summary.getAdded(), summary.getDuplicates(), summary.getInvalid(),
+                String.format("%.0f", summary.getUrlsPerSecond()));
+        return summary;
+    }
+
+    private static String firstColumn(String line) {
+        var comma = line.indexOf(',');
+        var column = comma == -1 ? line : line.substring(0, comma);
+        return column.replace("\uFEFF", "").replace("\"", "").strip();
+    }
+
+    private static String normalize(String entry) {
+        try {
+            return UrlNormalizer.normalize(entry);
+        } catch (URISyntaxException | MalformedURLException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
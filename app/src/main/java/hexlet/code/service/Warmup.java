@@ -0,0 +1,65 @@
+package hexlet.code.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import gg.jte.TemplateEngine;
+import gg.jte.output.StringOutput;
+import hexlet.code.controller.UrlController;
+import hexlet.code.dto.MainPage;
+import hexlet.code.dto.UrlsPage;
+import hexlet.code.model.Url;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import lombok.extern.slf4j.Slf4j;
+
+// Does the work of the first requests before the port opens: opens every pool connection, runs the queries
+// behind the main pages and renders their templates once, so class loading and connection setup are paid
+// at startup instead of by the first users.
+@Slf4j
+public final class Warmup {
+    private static final int PAGE_SIZE = 20;
+
+    private Warmup() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static void run(HikariDataSource dataSource, TemplateEngine templateEngine) throws SQLException {
+        var start = System.nanoTime();
+        fillPool(dataSource);
+        var urls = UrlRepository.getPageAfter(0, PAGE_SIZE);
+        var latestChecks = UrlCheckRepository.getLatestChecks(urls.stream().map(Url::getId).toList());
+        UrlRepository.count();
+
+        render(templateEngine, "index.jte", new MainPage());
+        render(templateEngine, "urls/index.jte", new UrlsPage(urls, latestChecks, null, null, PAGE_SIZE));
+        if (!urls.isEmpty()) {
+            var url = urls.getFirst();
+            render(templateEngine, "urls/show.jte", UrlController.buildUrlPage(url));
+        }
+        log.info("Warm-up finished in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static void fillPool(HikariDataSource dataSource) throws SQLException {
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (var i = 0; i < dataSource.getMaximumPoolSize(); i++) {
+                connections.add(dataSource.getConnection());
+            }
+        } finally {
+            for (var connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    private static void render(TemplateEngine templateEngine, String template, Object page) {
+        templateEngine.render(template, Map.of("page", page), new StringOutput());
+    }
+}
@@ -0,0 +1,81 @@
+package hexlet.code.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolverProvider;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Bounded DNS cache for the whole JVM, registered in META-INF/services. Checks resolve the same hosts over
+// and over. The JDK's own cache sits in front of this one and has no size limit and no statistics; App only
+// turns it off when DNS_CACHE_ONLY is set.
+public final class CachingResolverProvider extends InetAddressResolverProvider {
+    private static final long TTL_NANOS = TimeUnit.SECONDS.toNanos(Env.getInt("DNS_CACHE_TTL_SECONDS", 60));
+    private static final LruCache<String, Entry> CACHE = new LruCache<>(Env.getInt("DNS_CACHE_SIZE", 10_000));
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private record Entry(List<InetAddress> addresses, long expiresAt) {
+    }
+
+    @Override
+    public InetAddressResolver get(Configuration configuration) {
+        return wrap(configuration.builtinResolver());
+    }
+
+    static InetAddressResolver wrap(InetAddressResolver delegate) {
+        return new CachingResolver(delegate);
+    }
+
+    @Override
+    public String name() {
+        return "caching-resolver";
+    }
+
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    public static int getSize() {
+        return CACHE.size();
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    private static final class CachingResolver implements InetAddressResolver {
+        private final InetAddressResolver delegate;
+
+        CachingResolver(InetAddressResolver delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Stream<InetAddress> lookupByName(String host, LookupPolicy lookupPolicy) throws UnknownHostException {
+            var key = lookupPolicy.characteristics() + ":" + host;
+            var entry = CACHE.get(key);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                HITS.increment();
+                return entry.addresses().stream();
+            }
+            MISSES.increment();
+            // Failures are not cached, a host that is down for a moment should not stay unresolvable.
+            var addresses = delegate.lookupByName(host, lookupPolicy).toList();
+            CACHE.put(key, new Entry(addresses, System.nanoTime() + TTL_NANOS));
+            return addresses.stream();
+        }
+
+        @Override
+        public String lookupByAddress(byte[] address) throws UnknownHostException {
+            return delegate.lookupByAddress(address);
+        }
+    }
+}
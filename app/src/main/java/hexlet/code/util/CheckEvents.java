@@ -0,0 +1,155 @@
+package hexlet.code.util;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import hexlet.code.model.UrlCheck;
+
+// Check progress fanned out to event stream subscribers. Every subscriber has its own bounded buffer, and
+// publishing never waits: a subscriber whose buffer is full is dropped, so one slow reader cannot hold up
+// checks or the other readers. An event is serialized once, however many subscribers receive it.
+public final class CheckEvents {
+    public static final String STARTED = "check-started";
+    public static final String COMPLETED = "check-completed";
+    public static final String FAILED = "check-failed";
+    private static final int BUFFER_SIZE = Math.max(1, Env.getInt("SSE_BUFFER_SIZE", 64));
+    private static final int MAX_SUBSCRIBERS = Math.max(1, Env.getInt("SSE_MAX_SUBSCRIBERS", 1000));
+    private static final Set<Subscription> SUBSCRIPTIONS = ConcurrentHashMap.newKeySet();
+    private static final LongAdder PUBLISHED = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public record Event(String name, Long urlId, String data) {
+    }
+
+    // Receives the events of one url, or of all urls when urlId is null, until closed or dropped.
+    public static final class Subscription implements AutoCloseable {
+        private final Long urlId;
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(BUFFER_SIZE);
+        private volatile boolean dropped;
+
+        private Subscription(Long urlId) {
+            this.urlId = urlId;
+        }
+
+        // The next event, or null when none arrived within the timeout.
+        public Event next(long timeout, TimeUnit unit) throws InterruptedException {
+            return queue.poll(timeout, unit);
+        }
+
+        public boolean isDropped() {
+            return dropped;
+        }
+
+        private void offer(Event event) {
+            if ((urlId == null || urlId.equals(event.urlId())) && !queue.offer(event)) {
+                dropped = true;
+                if (SUBSCRIPTIONS.remove(this)) {
+                    DROPPED.increment();
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            SUBSCRIPTIONS.remove(this);
+        }
+    }
+
+    static {
+        Metrics.gauge("app_sse_subscribers", "Open check event streams", SUBSCRIPTIONS::size);
+        Metrics.counter("app_sse_events_published_total", "Check events published to event streams",
+                PUBLISHED::sum);
+        Metrics.counter("app_sse_subscribers_dropped_total", "Event streams dropped because their buffer was full",
+                DROPPED::sum);
+    }
+
+    private CheckEvents() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // Empty when MAX_SUBSCRIBERS streams are open already.
+    public static Optional<Subscription> subscribe(Long urlId) {
+        if (SUBSCRIPTIONS.size() >= MAX_SUBSCRIBERS) {
+            return Optional.empty();
+        }
+        var subscription = new Subscription(urlId);
+        SUBSCRIPTIONS.add(subscription);
+        return Optional.of(subscription);
+    }
+
+    public static int getSubscriberCount() {
+        return SUBSCRIPTIONS.size();
+    }
+
+    public static long getDroppedCount() {
+        return DROPPED.sum();
+    }
+
+    public static void onCheckStarted(Long urlId) {
+        if (SUBSCRIPTIONS.isEmpty()) {
+            return;
+        }
+        publish(STARTED, urlId, json -> json.writeNumberField("urlId", urlId));
+    }
+
+    public static void onCheckSaved(UrlCheck check) {
+        if (SUBSCRIPTIONS.isEmpty()) {
+            return;
+        }
+        publish(COMPLETED, check.getUrlId(), json -> {
+            json.writeNumberField("urlId", check.getUrlId());
+            if (check.getId() != null) {
+                json.writeNumberField("checkId", check.getId());
+            }
+            json.writeNumberField("statusCode", check.getStatusCode());
+            json.writeStringField("title", check.getTitle());
+            if (check.getResponseTimeMs() != null) {
+                json.writeNumberField("responseTimeMs", check.getResponseTimeMs());
+            }
+            json.writeNumberField("repeatCount", check.getRepeatCount());
+        });
+    }
+
+    public static void onCheckFailed(Long urlId, String message) {
+        if (SUBSCRIPTIONS.isEmpty()) {
+            return;
+        }
+        publish(FAILED, urlId, json -> {
+            json.writeNumberField("urlId", urlId);
+            json.writeStringField("message", message);
+        });
+    }
+
+    private static void publish(String name, Long urlId, JsonFields fields) {
+        var out = new StringWriter();
+        try (var json = JSON_FACTORY.createGenerator(out)) {
+            json.writeStartObject();
+            fields.write(json);
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        var event = new Event(name, urlId, out.toString());
+        PUBLISHED.increment();
+        for (var subscription : SUBSCRIPTIONS) {
+            subscription.offer(event);
+        }
+    }
+
+    @FunctionalInterface
+    private interface JsonFields {
+        void write(JsonGenerator json) throws IOException;
+    }
+}
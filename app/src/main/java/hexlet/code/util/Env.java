@@ -0,0 +1,31 @@
+package hexlet.code.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public final class Env {
+    private Env() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        var value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring non-numeric {}={}, using {}", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        var value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return value.trim().equalsIgnoreCase("true");
+    }
+}
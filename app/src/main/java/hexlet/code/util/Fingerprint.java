@@ -0,0 +1,36 @@
+package hexlet.code.util;
+
+import java.nio.charset.StandardCharsets;
+
+// 64-bit FNV-1a over the given values. It is stable across JVMs and restarts, so it can be stored and compared
+// later; it is not meant to resist deliberate collisions.
+public final class Fingerprint {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+    // Separates values so that ("ab", "c") and ("a", "bc") differ; a null value hashes differently from "".
+    private static final int SEPARATOR = 0x1f;
+    private static final int NULL_MARKER = 0x00;
+
+    private Fingerprint() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static long of(Object... values) {
+        var hash = OFFSET_BASIS;
+        for (var value : values) {
+            if (value == null) {
+                hash = mix(hash, NULL_MARKER);
+            } else {
+                for (var b : value.toString().getBytes(StandardCharsets.UTF_8)) {
+                    hash = mix(hash, b & 0xff);
+                }
+            }
+            hash = mix(hash, SEPARATOR);
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, int octet) {
+        return (hash ^ octet) * PRIME;
+    }
+}
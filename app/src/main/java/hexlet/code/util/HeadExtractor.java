@@ -0,0 +1,50 @@
+package hexlet.code.util;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+
+public final class HeadExtractor {
+    private HeadExtractor() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public record Fields(String title, String h1, String description) {
+        public static final Fields EMPTY = new Fields("", "", "");
+    }
+
+    // Parses only as far as needed to see <title>, the first <h1> and the description meta tag.
+    // Elements are dropped from the tree as soon as they are closed, so memory does not grow with the page.
+    public static Fields extract(Reader reader) throws IOException {
+        String title = null;
+        String h1 = null;
+        String description = null;
+        try (var streamer = new StreamParser(Parser.htmlParser()).parse(reader, "")) {
+            var elements = streamer.iterator();
+            while (elements.hasNext() && (title == null || h1 == null || description == null)) {
+                Element element = elements.next();
+                var name = element.normalName();
+                if (title == null && name.equals("title")) {
+                    title = element.text();
+                } else if (h1 == null && name.equals("h1")) {
+                    h1 = element.text();
+                } else if (description == null && name.equals("meta")
+                        && element.attr("name").equalsIgnoreCase("description")) {
+                    description = element.attr("content");
+                }
+                // Children of the first h1 are needed for its text until the h1 itself is closed.
+                if (h1 != null || element.closest("h1") == null) {
+                    element.remove();
+                }
+            }
+        }
+        return new Fields(orEmpty(title), orEmpty(h1), orEmpty(description));
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
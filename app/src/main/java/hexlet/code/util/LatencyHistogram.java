@@ -0,0 +1,87 @@
+package hexlet.code.util;
+
+// Response times in milliseconds on a log scale: bucket i holds values up to GROWTH^i, so a percentile read from
+// it is at most about 10% above the true value. Histograms merge by adding counts, which lets per-day histograms
+// be combined into any longer window. Stored sparsely as "index:count,index:count".
+public final class LatencyHistogram {
+    private static final double GROWTH = 1.1;
+    // GROWTH^127 is about three minutes, longer than any check may take.
+    private static final int BUCKETS = 128;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+
+    public void record(long millis) {
+        counts[indexOf(millis)]++;
+        total++;
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (var i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    public long getCount() {
+        return total;
+    }
+
+    // The upper bound of the bucket holding the given quantile, or 0 when nothing was recorded.
+    public long percentile(double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        var rank = Math.max(1, (long) Math.ceil(quantile * total));
+        var cumulative = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    public String encode() {
+        var out = new StringBuilder();
+        for (var i = 0; i < BUCKETS; i++) {
+            if (counts[i] > 0) {
+                if (!out.isEmpty()) {
+                    out.append(',');
+                }
+                out.append(i).append(':').append(counts[i]);
+            }
+        }
+        return out.toString();
+    }
+
+    public static LatencyHistogram decode(String encoded) {
+        var histogram = new LatencyHistogram();
+        if (encoded == null || encoded.isBlank()) {
+            return histogram;
+        }
+        for (var pair : encoded.split(",")) {
+            var parts = pair.split(":", 2);
+            var index = Integer.parseInt(parts[0].trim());
+            var count = Long.parseLong(parts[1].trim());
+            if (index >= 0 && index < BUCKETS && count > 0) {
+                histogram.counts[index] += count;
+                histogram.total += count;
+            }
+        }
+        return histogram;
+    }
+
+    static int indexOf(long millis) {
+        if (millis <= 1) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, (int) Math.ceil(Math.log(millis) / LOG_GROWTH - 1e-9));
+    }
+
+    static long upperBound(int index) {
+        return Math.round(Math.pow(GROWTH, index));
+    }
+}
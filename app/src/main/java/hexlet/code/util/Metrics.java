@@ -0,0 +1,69 @@
+package hexlet.code.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+// Registry rendered in the Prometheus text format. Histograms are looked up once and kept in static fields
+// by their users; gauges and counters are read from suppliers at scrape time, so they cost nothing in between.
+public final class Metrics {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final Map<String, Family> FAMILIES = new ConcurrentHashMap<>();
+
+    private record Family(String help, String type, Map<String, Object> series) {
+    }
+
+    private Metrics() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static Histogram histogram(String name, String help, String labels) {
+        return (Histogram) family(name, help, "histogram").series().computeIfAbsent(labels, key -> new Histogram());
+    }
+
+    // Registering a gauge again replaces the previous supplier, e.g. when the app is rebuilt with a new pool.
+    public static void gauge(String name, String help, DoubleSupplier value) {
+        gauge(name, help, "", value);
+    }
+
+    public static void gauge(String name, String help, String labels, DoubleSupplier value) {
+        family(name, help, "gauge").series().put(labels, value);
+    }
+
+    public static void counter(String name, String help, DoubleSupplier value) {
+        family(name, help, "counter").series().put("", value);
+    }
+
+    public static String label(String name, String value) {
+        var escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return name + "=\"" + escaped + "\"";
+    }
+
+    public static String scrape() {
+        var out = new StringBuilder();
+        for (var entry : new TreeMap<>(FAMILIES).entrySet()) {
+            var name = entry.getKey();
+            var family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type()).append('\n');
+            for (var series : new TreeMap<>(family.series()).entrySet()) {
+                if (series.getValue() instanceof Histogram histogram) {
+                    histogram.writeTo(out, name, series.getKey());
+                } else if (series.getValue() instanceof DoubleSupplier supplier) {
+                    var labels = series.getKey().isEmpty() ? "" : "{" + series.getKey() + "}";
+                    out.append(name).append(labels).append(' ').append(supplier.getAsDouble()).append('\n');
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static Family family(String name, String help, String type) {
+        var family = FAMILIES.computeIfAbsent(name, key -> new Family(help, type, new ConcurrentHashMap<>()));
+        if (!family.type().equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type());
+        }
+        return family;
+    }
+}
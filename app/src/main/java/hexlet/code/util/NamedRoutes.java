@@ -13,6 +13,18 @@ public final class NamedRoutes {
         return "/urls";
     }
 
+    public static String urlsAfterPath(Long cursor, int size) {
+        return urlsPath() + "?after=" + cursor + "&size=" + size;
+    }
+
+    public static String urlsBeforePath(Long cursor, int size) {
+        return urlsPath() + "?before=" + cursor + "&size=" + size;
+    }
+
+    public static String importPath() {
+        return "/urls/import";
+    }
+
     public static String urlPath(Long id) {
         return urlPath(String.valueOf(id));
     }
@@ -28,4 +40,44 @@ public final class NamedRoutes {
     public static String checkPath(String id) {
         return "/urls/" + id + "/checks";
     }
+
+    public static String eventsPath() {
+        return "/events";
+    }
+
+    public static String urlEventsPath(Long id) {
+        return urlEventsPath(String.valueOf(id));
+    }
+
+    public static String urlEventsPath(String id) {
+        return "/urls/" + id + "/events";
+    }
+
+    public static String bulkCheckPath() {
+        return "/urls/checks";
+    }
+
+    public static String bulkCheckStatusPath() {
+        return "/urls/checks/status";
+    }
+
+    public static String metricsPath() {
+        return "/metrics";
+    }
+
+    public static String apiUrlsPath() {
+        return "/api/urls";
+    }
+
+    public static String apiUrlChecksPath(Long id) {
+        return apiUrlChecksPath(String.valueOf(id));
+    }
+
+    public static String apiUrlChecksPath(String id) {
+        return "/api/urls/" + id + "/checks";
+    }
+
+    public static String apiSearchPath() {
+        return "/api/search";
+    }
 }
@@ -0,0 +1,98 @@
+package hexlet.code.util;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import hexlet.code.dto.UrlPage;
+import hexlet.code.dto.UrlsPage;
+
+// Page models for /urls and /urls/{id}. Flash messages and check progress are not part of the models,
+// so they are still rendered per request.
+// Every model remembers the clock reading taken before its reads started. A save stamps the clock onto the
+// url's stripe, and a model is only served while none of its urls has a newer stamp. Invalidation is therefore
+// a single counter update, and saving one url leaves models of unrelated urls alone.
+public final class PageCache {
+    private static final int MAX_PAGES = Env.getInt("PAGE_CACHE_SIZE", 512);
+    private static final int STRIPES = 4096;
+    private static final LruCache<String, Entry<UrlsPage>> INDEX_PAGES = new LruCache<>(MAX_PAGES);
+    private static final LruCache<Long, Entry<UrlPage>> URL_PAGES = new LruCache<>(MAX_PAGES);
+    private static final AtomicLong CLOCK = new AtomicLong();
+    // Latest save of any url whose id falls into the stripe.
+    private static final AtomicLongArray SAVED = new AtomicLongArray(STRIPES);
+    // Latest new url, which can only change the last page of the list.
+    private static final AtomicLong URL_ADDED = new AtomicLong();
+    // Models read before the last clear are never served.
+    private static final AtomicLong CLEARED = new AtomicLong();
+
+    // Url pages also embed response times of the last days, so they are only good for the day they were built.
+    private record Entry<P>(P page, long generation, LocalDate day) {
+    }
+
+    private PageCache() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // Read before loading what a model is built from, and passed back when storing the model.
+    public static long generation() {
+        return CLOCK.get();
+    }
+
+    public static UrlsPage getIndexPage(String key) {
+        var entry = INDEX_PAGES.get(key);
+        if (entry == null) {
+            return null;
+        }
+        var page = entry.page();
+        var fresh = isFresh(entry.generation())
+                && (page.getNextCursor() != null || URL_ADDED.get() <= entry.generation());
+        for (var i = 0; fresh && i < page.getUrls().size(); i++) {
+            fresh = savedAt(page.getUrls().get(i).getId()) <= entry.generation();
+        }
+        return fresh ? page : null;
+    }
+
+    public static void putIndexPage(String key, UrlsPage page, long generation) {
+        INDEX_PAGES.put(key, new Entry<>(page, generation, null));
+    }
+
+    public static UrlPage getUrlPage(Long urlId) {
+        var entry = URL_PAGES.get(urlId);
+        if (entry == null) {
+            return null;
+        }
+        var fresh = isFresh(entry.generation()) && savedAt(urlId) <= entry.generation()
+                && entry.day().equals(LocalDate.now());
+        return fresh ? entry.page() : null;
+    }
+
+    public static void putUrlPage(Long urlId, UrlPage page, long generation) {
+        URL_PAGES.put(urlId, new Entry<>(page, generation, LocalDate.now()));
+    }
+
+    public static void onUrlAdded() {
+        URL_ADDED.accumulateAndGet(CLOCK.incrementAndGet(), Math::max);
+    }
+
+    public static void onCheckSaved(Long urlId) {
+        SAVED.accumulateAndGet(stripe(urlId), CLOCK.incrementAndGet(), Math::max);
+    }
+
+    public static void clear() {
+        CLEARED.accumulateAndGet(CLOCK.incrementAndGet(), Math::max);
+        INDEX_PAGES.clear();
+        URL_PAGES.clear();
+    }
+
+    private static boolean isFresh(long generation) {
+        return CLEARED.get() <= generation;
+    }
+
+    private static long savedAt(Long urlId) {
+        return SAVED.get(stripe(urlId));
+    }
+
+    private static int stripe(Long urlId) {
+        return (int) Math.floorMod(urlId, (long) STRIPES);
+    }
+}
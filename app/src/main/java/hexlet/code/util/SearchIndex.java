@@ -0,0 +1,201 @@
+package hexlet.code.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import hexlet.code.model.UrlCheck;
+
+// Inverted index over the title, h1 and description of the latest check of every url. Postings hold a weighted
+// term frequency per url, so a query only touches the urls that contain its rarest term; results are ranked
+// with BM25. Updated as checks are saved and rebuilt from the database when the app starts.
+public final class SearchIndex {
+    private static final float TITLE_WEIGHT = 3;
+    private static final float H1_WEIGHT = 2;
+    private static final float DESCRIPTION_WEIGHT = 1;
+    private static final int MIN_TERM_LENGTH = 2;
+    // Caps the work and memory a huge description can cost.
+    private static final int MAX_TERMS_PER_FIELD = 256;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final Map<String, Map<Long, Float>> POSTINGS = new HashMap<>();
+    private static final Map<Long, Document> DOCUMENTS = new HashMap<>();
+    private static final ReentrantReadWriteLock LOCK = new ReentrantReadWriteLock();
+    private static final Histogram QUERY_TIME = Metrics.histogram("app_search_query_duration_seconds",
+            "Time spent answering a search query from the index", "");
+    private static double totalLength;
+
+    private record Document(Long checkId, Map<String, Float> terms, float length) {
+    }
+
+    public record Hit(Long urlId, double score) {
+    }
+
+    static {
+        Metrics.gauge("app_search_index_documents", "Urls in the search index", SearchIndex::getSize);
+        Metrics.gauge("app_search_index_terms", "Distinct terms in the search index", SearchIndex::getTermCount);
+    }
+
+    private SearchIndex() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // Replaces what is indexed for the url, unless a newer check of it is indexed already.
+    public static void onCheckSaved(UrlCheck check) {
+        var terms = analyze(check);
+        var length = (float) terms.values().stream().mapToDouble(Float::doubleValue).sum();
+        LOCK.writeLock().lock();
+        try {
+            var previous = DOCUMENTS.get(check.getUrlId());
+            if (previous != null && previous.checkId() != null && check.getId() != null
+                    && previous.checkId() > check.getId()) {
+                return;
+            }
+            remove(check.getUrlId(), previous);
+            DOCUMENTS.put(check.getUrlId(), new Document(check.getId(), terms, length));
+            totalLength += length;
+            terms.forEach((term, frequency) ->
+                    POSTINGS.computeIfAbsent(term, key -> new HashMap<>()).put(check.getUrlId(), frequency));
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    public static void clear() {
+        LOCK.writeLock().lock();
+        try {
+            POSTINGS.clear();
+            DOCUMENTS.clear();
+            totalLength = 0;
+        } finally {
+            LOCK.writeLock().unlock();
+        }
+    }
+
+    // All query terms must occur; the best `limit` urls come first.
+    public static List<Hit> search(String query, int limit) {
+        var start = System.nanoTime();
+        var terms = tokenize(query, Integer.MAX_VALUE).keySet();
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        LOCK.readLock().lock();
+        try {
+            var postings = new ArrayList<Map<Long, Float>>(terms.size());
+            for (var term : terms) {
+                var posting = POSTINGS.get(term);
+                if (posting == null) {
+                    return List.of();
+                }
+                postings.add(posting);
+            }
+            postings.sort(Comparator.comparingInt(Map::size));
+            var count = DOCUMENTS.size();
+            var averageLength = totalLength / count;
+            var idf = new double[postings.size()];
+            for (var i = 0; i < idf.length; i++) {
+                var matching = postings.get(i).size();
+                idf[i] = Math.log(1 + (count - matching + 0.5) / (matching + 0.5));
+            }
+            var best = new PriorityQueue<Hit>(Comparator.comparingDouble(Hit::score));
+            for (var urlId : postings.getFirst().keySet()) {
+                var norm = K1 * (1 - B + B * DOCUMENTS.get(urlId).length() / averageLength);
+                var score = 0.0;
+                for (var i = 0; i < idf.length; i++) {
+                    var frequency = postings.get(i).get(urlId);
+                    if (frequency == null) {
+                        score = -1;
+                        break;
+                    }
+                    score += idf[i] * frequency * (K1 + 1) / (frequency + norm);
+                }
+                if (score >= 0 && (best.size() < limit || score > best.peek().score())) {
+                    best.add(new Hit(urlId, score));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            var hits = new ArrayList<>(best);
+            hits.sort(Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::urlId));
+            return hits;
+        } finally {
+            LOCK.readLock().unlock();
+            QUERY_TIME.observeSince(start);
+        }
+    }
+
+    public static int getSize() {
+        LOCK.readLock().lock();
+        try {
+            return DOCUMENTS.size();
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    public static int getTermCount() {
+        LOCK.readLock().lock();
+        try {
+            return POSTINGS.size();
+        } finally {
+            LOCK.readLock().unlock();
+        }
+    }
+
+    private static void remove(Long urlId, Document document) {
+        if (document == null) {
+            return;
+        }
+        totalLength -= document.length();
+        for (var term : document.terms().keySet()) {
+            var posting = POSTINGS.get(term);
+            posting.remove(urlId);
+            if (posting.isEmpty()) {
+                POSTINGS.remove(term);
+            }
+        }
+    }
+
+    private static Map<String, Float> analyze(UrlCheck check) {
+        var terms = new HashMap<String, Float>();
+        add(terms, check.getTitle(), TITLE_WEIGHT);
+        add(terms, check.getH1(), H1_WEIGHT);
+        add(terms, check.getDescription(), DESCRIPTION_WEIGHT);
+        return terms;
+    }
+
+    private static void add(Map<String, Float> terms, String text, float weight) {
+        tokenize(text, MAX_TERMS_PER_FIELD).forEach((term, occurrences) ->
+                terms.merge(term, occurrences * weight, Float::sum));
+    }
+
+    // Splits on anything that is not a letter or digit and lower-cases; returns each term with its occurrences.
+    static Map<String, Integer> tokenize(String text, int maxTerms) {
+        var terms = new LinkedHashMap<String, Integer>();
+        if (text == null) {
+            return terms;
+        }
+        var lower = text.toLowerCase(Locale.ROOT);
+        var start = -1;
+        for (var i = 0; i <= lower.length(); i++) {
+            var inWord = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                var term = lower.substring(start, i);
+                if (term.length() >= MIN_TERM_LENGTH && (terms.size() < maxTerms || terms.containsKey(term))) {
+                    terms.merge(term, 1, Integer::sum);
+                }
+                start = -1;
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,33 @@
+package hexlet.code.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.javalin.http.Context;
+import io.javalin.rendering.FileRenderer;
+
+// Records how long each template takes to render. The per-template histogram is looked up by path,
+// which costs a map lookup and no allocation once the template has been seen.
+public final class TimedFileRenderer implements FileRenderer {
+    private static final Map<String, Histogram> RENDER_TIMES = new ConcurrentHashMap<>();
+    private final FileRenderer delegate;
+
+    public TimedFileRenderer(FileRenderer delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String render(String filePath, Map<String, ?> model, Context context) {
+        var start = System.nanoTime();
+        try {
+            return delegate.render(filePath, model, context);
+        } finally {
+            RENDER_TIMES.computeIfAbsent(filePath, TimedFileRenderer::histogram).observeSince(start);
+        }
+    }
+
+    private static Histogram histogram(String filePath) {
+        return Metrics.histogram("app_template_render_duration_seconds", "Time spent rendering JTE templates",
+                Metrics.label("template", filePath));
+    }
+}
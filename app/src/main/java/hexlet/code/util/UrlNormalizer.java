@@ -0,0 +1,22 @@
+package hexlet.code.util;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+public final class UrlNormalizer {
+    private UrlNormalizer() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // Reduces the input to scheme, host and port, which is what identifies a site.
+    public static String normalize(String input) throws URISyntaxException, MalformedURLException {
+        URL urlObj = (new URI(input.trim().toLowerCase())).toURL();
+        return String.format(
+            "%s://%s%s",
+            urlObj.getProtocol(),
+            urlObj.getHost(),
+            (urlObj.getPort() == -1 ? "" : ":" + urlObj.getPort()));
+    }
+}
@@ -1,14 +1,10 @@
-DROP TABLE IF EXISTS urls;
-
-CREATE TABLE urls (
+CREATE TABLE IF NOT EXISTS urls (
     id SERIAL PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
 
-DROP TABLE IF EXISTS url_checks;
-
-CREATE TABLE url_checks (
+CREATE TABLE IF NOT EXISTS url_checks (
     id SERIAL PRIMARY KEY,
     url_id BIGINT NOT NULL,
     status_code INT NOT NULL,
@@ -17,3 +13,9 @@ CREATE TABLE url_checks (
     description TEXT,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
+
+-- Databases created by the old schema.sql may predate the latest check pointer.
+ALTER TABLE urls ADD COLUMN IF NOT EXISTS latest_check_id BIGINT;
+
+UPDATE urls SET latest_check_id = (SELECT MAX(c.id) FROM url_checks c WHERE c.url_id = urls.id)
+WHERE latest_check_id IS NULL;
@@ -0,0 +1,5 @@
+CREATE INDEX IF NOT EXISTS url_checks_url_id_id_idx ON url_checks (url_id, id DESC);
+
+CREATE INDEX IF NOT EXISTS url_checks_url_id_created_at_idx ON url_checks (url_id, created_at);
+
+CREATE UNIQUE INDEX IF NOT EXISTS urls_name_uidx ON urls (name);
@@ -0,0 +1,6 @@
+ALTER TABLE urls ADD COLUMN IF NOT EXISTS last_checked_at TIMESTAMP;
+
+UPDATE urls SET last_checked_at = (SELECT c.created_at FROM url_checks c WHERE c.id = urls.latest_check_id)
+WHERE latest_check_id IS NOT NULL;
+
+CREATE INDEX IF NOT EXISTS urls_last_checked_at_idx ON urls (last_checked_at);
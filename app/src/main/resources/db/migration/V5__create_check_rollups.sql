@@ -0,0 +1,13 @@
+CREATE TABLE IF NOT EXISTS url_check_rollups (
+    url_id BIGINT NOT NULL,
+    period_start TIMESTAMP NOT NULL,
+    check_count INT NOT NULL,
+    status_2xx INT NOT NULL DEFAULT 0,
+    status_3xx INT NOT NULL DEFAULT 0,
+    status_4xx INT NOT NULL DEFAULT 0,
+    status_5xx INT NOT NULL DEFAULT 0,
+    status_other INT NOT NULL DEFAULT 0,
+    change_count INT NOT NULL DEFAULT 0,
+    last_fingerprint BIGINT,
+    PRIMARY KEY (url_id, period_start)
+);
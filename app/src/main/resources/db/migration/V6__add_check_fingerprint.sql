@@ -0,0 +1,3 @@
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS fingerprint BIGINT;
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS last_confirmed_at TIMESTAMP;
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS repeat_count INT NOT NULL DEFAULT 0;
@@ -0,0 +1,11 @@
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS response_time_ms INT;
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS ttfb_ms INT;
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS download_ms INT;
+
+CREATE TABLE IF NOT EXISTS url_response_times (
+    url_id BIGINT NOT NULL,
+    period_start TIMESTAMP NOT NULL,
+    sample_count BIGINT NOT NULL,
+    buckets TEXT NOT NULL,
+    PRIMARY KEY (url_id, period_start)
+);
@@ -0,0 +1,5 @@
+DROP TABLE IF EXISTS url_response_times;
+DROP TABLE IF EXISTS url_check_rollups;
+DROP TABLE IF EXISTS url_checks;
+DROP TABLE IF EXISTS urls;
+DROP TABLE IF EXISTS schema_version;
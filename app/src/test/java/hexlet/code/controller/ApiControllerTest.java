@@ -0,0 +1,113 @@
+package hexlet.code.controller;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import hexlet.code.App;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.NamedRoutes;
+import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+
+class ApiControllerTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private Javalin app;
+
+    @BeforeEach
+    void setup() throws IOException, SQLException {
+        app = App.getApp();
+        UrlRepository.removeAll();
+    }
+
+    @AfterEach
+    void cleanup() {
+        UrlRepository.getDataSource().close();
+    }
+
+    @Test
+    void testUrlsAsJsonArray() {
+        JavalinTest.test(app, (server, client) -> {
+            UrlRepository.save(new Url("https://a.example"));
+            UrlRepository.save(new Url("https://b.example"));
+
+            var response = client.get(NamedRoutes.apiUrlsPath());
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Content-Type")).startsWith("application/json");
+            var json = MAPPER.readTree(response.body().string());
+            assertThat(json.isArray()).isTrue();
+            assertThat(json).hasSize(2);
+            assertThat(json.get(0).get("name").asText()).isEqualTo("https://a.example");
+            assertThat(json.get(1).get("name").asText()).isEqualTo("https://b.example");
+        });
+    }
+
+    @Test
+    void testEmptyUrlsAsJsonArray() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get(NamedRoutes.apiUrlsPath());
+            assertThat(response.body().string()).isEqualTo("[]");
+        });
+    }
+
+    @Test
+    void testChecksAsNdjson() {
+        JavalinTest.test(app, (server, client) -> {
+            var url = new Url("https://a.example");
+            UrlRepository.save(url);
+            UrlCheckRepository.save(new UrlCheck(200, "first", "h1", "d", url.getId()));
+            UrlCheckRepository.save(new UrlCheck(500, "second", "h1", "d", url.getId()));
+
+            var response = client.get(NamedRoutes.apiUrlChecksPath(url.getId()) + "?format=ndjson");
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Content-Type")).startsWith("application/x-ndjson");
+            var lines = response.body().string().split("\n");
+            assertThat(lines).hasSize(2);
+            assertThat(MAPPER.readTree(lines[0]).get("title").asText()).isEqualTo("second");
+            assertThat(MAPPER.readTree(lines[1]).get("statusCode").asInt()).isEqualTo(200);
+        });
+    }
+
+    @Test
+    void testChecksOfMissingUrl() {
+        JavalinTest.test(app, (server, client) -> {
+            var response = client.get(NamedRoutes.apiUrlChecksPath(999_999L) + "?format=ndjson");
+            assertThat(response.code()).isEqualTo(404);
+            assertThat(response.header("Content-Type")).startsWith("application/json");
+            var json = MAPPER.readTree(response.body().string());
+            assertThat(json.get("error").asText()).contains("999999");
+        });
+    }
+
+    @Test
+    void testSearchRanksLatestChecks() {
+        JavalinTest.test(app, (server, client) -> {
+            var shop = new Url("https://shop.example");
+            var blog = new Url("https://blog.example");
+            UrlRepository.save(shop);
+            UrlRepository.save(blog);
+            UrlCheckRepository.save(new UrlCheck(200, "Coffee shop", "Fresh coffee", "Beans", shop.getId()));
+            UrlCheckRepository.save(new UrlCheck(200, "Daily notes", "About tea", "Sometimes coffee", blog.getId()));
+            UrlCheckRepository.save(new UrlCheck(200, "Notes", "About tea", "", blog.getId()));
+
+            var json = MAPPER.readTree(client.get(NamedRoutes.apiSearchPath() + "?q=coffee").body().string());
+            assertThat(json).hasSize(1);
+            assertThat(json.get(0).get("name").asText()).isEqualTo("https://shop.example");
+
+            json = MAPPER.readTree(client.get(NamedRoutes.apiSearchPath() + "?q=TEA+notes").body().string());
+            assertThat(json).hasSize(1);
+            assertThat(json.get(0).get("title").asText()).isEqualTo("Notes");
+
+            assertThat(client.get(NamedRoutes.apiSearchPath() + "?q=").body().string()).isEqualTo("[]");
+        });
+    }
+}
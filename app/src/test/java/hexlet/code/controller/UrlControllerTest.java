@@ -2,6 +2,7 @@ package hexlet.code.controller;
 
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -15,7 +16,10 @@ import org.junit.jupiter.api.Test;
 
 import hexlet.code.App;
 import hexlet.code.model.Url;
+import hexlet.code.repository.UrlCheckRepository;
 import hexlet.code.repository.UrlRepository;
+import hexlet.code.service.BulkCheckService;
+import hexlet.code.service.UrlCheckService;
 import io.javalin.Javalin;
 import io.javalin.testtools.JavalinTest;
 import lombok.extern.slf4j.Slf4j;
@@ -58,6 +62,21 @@ class UrlControllerTest {
         });
     }
 
+    @Test
+    void testMetrics() {
+        JavalinTest.test(app, (server, client) -> {
+            client.get("/urls");
+            var response = client.get(NamedRoutes.metricsPath());
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(response.header("Content-Type")).startsWith("text/plain");
+            assertThat(response.body().string())
+                .contains("hikari_connections_active{pool=\"web\"} ")
+                .contains("hikari_connections_active{pool=\"check\"} ")
+                .contains("app_query_duration_seconds_count{repository=\"url\",method=\"getPageAfter\"}")
+                .contains("app_template_render_duration_seconds_count{template=\"urls/index.jte\"}");
+        });
+    }
+
     @Test
     void testUrlsPage() {
         JavalinTest.test(app, (server, client) -> {
@@ -107,6 +126,35 @@ class UrlControllerTest {
         });
     }
 
+    @Test
+    void testCreateExistingUrl() {
+        JavalinTest.test(app, (server, client) -> {
+            UrlRepository.save(new Url("https://example.com"));
+            try (var response = client.post("/urls", "url=https://example.com/other")) {
+                assertThat(response.code()).isEqualTo(200);
+                var body = response.body();
+                assertThat(body).isNotNull();
+                assertThat(body.string()).contains("Страница уже существует");
+            }
+            assertThat(UrlRepository.getEntities()).hasSize(1);
+        });
+    }
+
+    @Test
+    void testImportUrls() {
+        JavalinTest.test(app, (server, client) -> {
+            UrlRepository.save(new Url("https://existing.example"));
+            var requestBody = "urls=https://a.example%0Ahttps://A.example/path%0A%0Anot+a+url"
+                + "%0Ahttps://existing.example,comment";
+            try (var response = client.post(NamedRoutes.importPath(), requestBody)) {
+                assertThat(response.code()).isEqualTo(200);
+                assertThat(response.body().string()).contains("добавлено 1, уже были 2, некорректных 1");
+            }
+            assertThat(UrlRepository.getEntities()).extracting(Url::getName)
+                .containsExactly("https://existing.example", "https://a.example");
+        });
+    }
+
     @Test
     void testCreateUrlFromMixedCase() {
         JavalinTest.test(app, (server, client) -> {
@@ -177,6 +225,45 @@ class UrlControllerTest {
         });
     }
 
+    @Test
+    void testIndexIsPaginated() {
+        JavalinTest.test(app, (server, client) -> {
+            for (var i = 1; i <= 3; i++) {
+                UrlRepository.save(new Url("https://site" + i + ".com"));
+            }
+            var first = UrlRepository.getEntities().getFirst();
+
+            var body = client.get(NamedRoutes.urlsPath() + "?size=2").body();
+            assertThat(body).isNotNull();
+            var bodyString = body.string();
+            assertThat(bodyString).contains("https://site1.com", "https://site2.com");
+            assertThat(bodyString).doesNotContain("https://site3.com");
+            assertThat(bodyString).contains("after=" + (first.getId() + 1));
+
+            body = client.get(NamedRoutes.urlsAfterPath(first.getId() + 1, 2)).body();
+            assertThat(body).isNotNull();
+            bodyString = body.string();
+            assertThat(bodyString).contains("https://site3.com");
+            assertThat(bodyString).doesNotContain("https://site1.com");
+            assertThat(bodyString).contains("before=" + (first.getId() + 2));
+        });
+    }
+
+    @Test
+    void testCachedIndexSeesNewUrls() {
+        JavalinTest.test(app, (server, client) -> {
+            UrlRepository.save(new Url("https://example.com"));
+            var body = client.get(NamedRoutes.urlsPath()).body();
+            assertThat(body).isNotNull();
+            assertThat(body.string()).doesNotContain("https://google.com");
+
+            UrlRepository.save(new Url("https://google.com"));
+            body = client.get(NamedRoutes.urlsPath()).body();
+            assertThat(body).isNotNull();
+            assertThat(body.string()).contains("https://example.com", "https://google.com");
+        });
+    }
+
     @Test
     void testShowDisplaysUrl() {
         JavalinTest.test(app, (server, client) -> {
@@ -221,22 +308,151 @@ class UrlControllerTest {
         var url = new Url(mockUrl.url().toString());
         UrlRepository.save(url);
 
+        JavalinTest.test(app, (javalinServer, client) -> {
+            try (var response = client.post(NamedRoutes.checkPath(url.getId()))) {
+                assertThat(response.code()).isEqualTo(200);
+            }
+            awaitCheck(url.getId());
+            var response = client.get(NamedRoutes.urlPath(url.getId()));
+            var body = response.body();
+            assertThat(body).isNotNull();
+            String bodyString = body.string();
+            assertThat(bodyString).contains("mock description");
+            assertThat(bodyString).contains("mock title");
+            assertThat(bodyString).contains("mock response header");
+            assertThat(bodyString).contains("p95, мс");
+            assertThat(UrlCheckRepository.findLatest(url.getId()).orElseThrow().getResponseTimeMs()).isNotNull();
+            var response1 = client.get("/urls");
+            body = response1.body();
+            assertThat(body).isNotNull();
+            bodyString = body.string();
+            assertThat(bodyString).contains("200");
+        });
+        server.close();
+    }
+
+    @Test
+    void testCheckIsPendingUntilFetchCompletes() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse.Builder()
+                .body("<title>slow title</title>")
+                .headersDelay(1, TimeUnit.SECONDS)
+                .build());
+        server.start();
+        var url = new Url(server.url("/").url().toString());
+        UrlRepository.save(url);
+
         JavalinTest.test(app, (javalinServer, client) -> {
             try (var response = client.post(NamedRoutes.checkPath(url.getId()))) {
                 assertThat(response.code()).isEqualTo(200);
                 var body = response.body();
                 assertThat(body).isNotNull();
-                String bodyString = body.string();
-                assertThat(bodyString).contains("mock description");
-                assertThat(bodyString).contains("mock title");
-                assertThat(bodyString).contains("mock response header");
-                var response1 = client.get("/urls");
-                body = response1.body();
-                assertThat(body).isNotNull();
-                bodyString = body.string();
-                assertThat(bodyString).contains("200");
+                assertThat(body.string()).contains("Проверка выполняется");
             }
+            awaitCheck(url.getId());
+            var body = client.get(NamedRoutes.urlPath(url.getId())).body();
+            assertThat(body).isNotNull();
+            assertThat(body.string()).contains("slow title");
         });
         server.close();
     }
+
+    @Test
+    void testCheckSkipsParsingNonHtml() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse.Builder()
+                .addHeader("Content-Type", "application/octet-stream")
+                .body("<title>not really html</title>")
+                .build());
+        server.start();
+        var url = new Url(server.url("/").url().toString());
+        UrlRepository.save(url);
+
+        JavalinTest.test(app, (javalinServer, client) -> {
+            client.post(NamedRoutes.checkPath(url.getId())).close();
+            awaitCheck(url.getId());
+            var checks = UrlCheckRepository.getEntitiesByUrlId(url.getId());
+            assertThat(checks).hasSize(1);
+            assertThat(checks.getFirst().getStatusCode()).isEqualTo(200);
+            assertThat(checks.getFirst().getTitle()).isEmpty();
+        });
+        server.close();
+    }
+
+    @Test
+    void testRecheckReusesDataOnNotModified() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse.Builder()
+                .addHeader("ETag", "\"v1\"")
+                .addHeader("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT")
+                .body("<title>cached title</title><h1>cached header</h1>")
+                .build());
+        server.enqueue(new MockResponse.Builder().code(304).build());
+        server.start();
+        var url = new Url(server.url("/").url().toString());
+        UrlRepository.save(url);
+
+        JavalinTest.test(app, (javalinServer, client) -> {
+            client.post(NamedRoutes.checkPath(url.getId())).close();
+            awaitCheck(url.getId());
+            client.post(NamedRoutes.checkPath(url.getId())).close();
+            awaitCheck(url.getId());
+
+            server.takeRequest();
+            var conditional = server.takeRequest();
+            assertThat(conditional.getHeaders().get("If-None-Match")).isEqualTo("\"v1\"");
+            assertThat(conditional.getHeaders().get("If-Modified-Since")).isEqualTo("Wed, 21 Oct 2015 07:28:00 GMT");
+
+            var latest = UrlCheckRepository.findLatest(url.getId()).orElseThrow();
+            assertThat(latest.getStatusCode()).isEqualTo(200);
+            assertThat(latest.getTitle()).isEqualTo("cached title");
+            assertThat(latest.getH1()).isEqualTo("cached header");
+            assertThat(latest.getEtag()).isEqualTo("\"v1\"");
+            assertThat(latest.getRepeatCount()).isEqualTo(1);
+            assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).hasSize(1);
+        });
+        server.close();
+    }
+
+    @Test
+    void testCheckAll() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse.Builder().body("<title>first</title>").build());
+        server.enqueue(new MockResponse.Builder().code(500).body("<title>second</title>").build());
+        server.start();
+        var url1 = new Url(server.url("/").url().toString());
+        var url2 = new Url(server.url("/").url().toString().replace("localhost", "127.0.0.1"));
+        UrlRepository.save(url1);
+        UrlRepository.save(url2);
+
+        JavalinTest.test(app, (javalinServer, client) -> {
+            try (var response = client.post(NamedRoutes.bulkCheckPath())) {
+                assertThat(response.code()).isEqualTo(200);
+            }
+            var deadline = System.currentTimeMillis() + 5_000;
+            while (BulkCheckService.getProgress().orElseThrow().isRunning()
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            var progress = BulkCheckService.getProgress().orElseThrow();
+            assertThat(progress.isRunning()).isFalse();
+            assertThat(progress.getTotal()).isEqualTo(2);
+            assertThat(progress.getRemaining()).isZero();
+
+            var body = client.get(NamedRoutes.bulkCheckStatusPath()).body();
+            assertThat(body).isNotNull();
+            assertThat(body.string()).contains("\"total\":2");
+            body = client.get(NamedRoutes.urlsPath()).body();
+            assertThat(body).isNotNull();
+            assertThat(body.string()).contains("500");
+        });
+        server.close();
+    }
+
+    private static void awaitCheck(Long urlId) throws InterruptedException {
+        var deadline = System.currentTimeMillis() + 5_000;
+        while (UrlCheckService.isPending(urlId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package hexlet.code.repository;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import hexlet.code.App;
+import hexlet.code.model.Url;
+
+class MigrationsTest {
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        App.getApp();
+    }
+
+    @Test
+    void testReadResourceWithValidFile() throws IOException {
+        var content = Migrations.readResourceFile("db/migration/V1__create_tables.sql");
+        assertThat(content).contains("CREATE TABLE");
+    }
+
+    @Test
+    void testReadResourceFileWithMissingFile() throws IOException {
+        var content = Migrations.readResourceFile("nonexistent-file.txt");
+        assertThat(content).isEmpty();
+    }
+
+    @Test
+    void testMigrateIsIdempotent() throws IOException, SQLException {
+        var dataSource = BaseRepository.getDataSource();
+        var version = Migrations.getCurrentVersion(dataSource);
+        assertThat(version).isPositive();
+
+        UrlRepository.save(new Url("https://example.com"));
+        assertThat(Migrations.migrate(dataSource)).isZero();
+        assertThat(Migrations.getCurrentVersion(dataSource)).isEqualTo(version);
+        assertThat(UrlRepository.findByName("https://example.com")).isPresent();
+    }
+
+    @Test
+    void testConcurrentMigrationsApplyEveryScriptOnce() throws Exception {
+        var dataSource = BaseRepository.getDataSource();
+        var version = Migrations.getCurrentVersion(dataSource);
+        Migrations.reset(dataSource);
+
+        Callable<Integer> migrate = () -> Migrations.migrate(dataSource);
+        try (var executor = Executors.newFixedThreadPool(2)) {
+            var first = executor.submit(migrate);
+            var second = executor.submit(migrate);
+            assertThat(first.get() + second.get()).isEqualTo(version);
+        }
+        assertThat(Migrations.getCurrentVersion(dataSource)).isEqualTo(version);
+    }
+
+    @Test
+    void testNewerSchemaAppliesNothing() throws Exception {
+        var dataSource = BaseRepository.getDataSource();
+        try (var conn = dataSource.getConnection();
+             var stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO schema_version (version, script) VALUES (999, 'future.sql')");
+        }
+        assertThat(Migrations.migrate(dataSource)).isZero();
+    }
+
+    @Test
+    void testNamesAreUnique() throws SQLException {
+        UrlRepository.save(new Url("https://example.com"));
+        assertThatThrownBy(() -> UrlRepository.save(new Url("https://example.com")))
+            .isInstanceOf(SQLException.class);
+    }
+}
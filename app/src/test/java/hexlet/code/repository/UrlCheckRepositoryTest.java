@@ -0,0 +1,181 @@
+package hexlet.code.repository;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import hexlet.code.App;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.util.CheckEvents;
+
+class UrlCheckRepositoryTest {
+    private Url url;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        App.getApp();
+        UrlRepository.removeAll();
+        url = new Url("https://example.com");
+        UrlRepository.save(url);
+    }
+
+    @Test
+    void testSaveAssignsIdAndDate() throws SQLException {
+        var check = new UrlCheck(200, "title", "h1", "description", url.getId());
+        UrlCheckRepository.save(check);
+
+        assertThat(check.getId()).isNotNull();
+        assertThat(check.getCreatedAt()).isNotNull();
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).hasSize(1);
+    }
+
+    @Test
+    void testSavePublishesCompletedEvent() throws SQLException, InterruptedException {
+        try (var events = CheckEvents.subscribe(url.getId()).orElseThrow()) {
+            var check = new UrlCheck(200, "title", "h1", "description", url.getId());
+            UrlCheckRepository.save(check);
+
+            var event = events.next(1, TimeUnit.SECONDS);
+            assertThat(event.name()).isEqualTo(CheckEvents.COMPLETED);
+            assertThat(event.data()).contains("\"checkId\":" + check.getId());
+        }
+    }
+
+    @Test
+    void testUrlIdsWithMoreChecksThan() throws SQLException {
+        var other = new Url("https://google.com");
+        UrlRepository.save(other);
+        for (var i = 0; i < 3; i++) {
+            UrlCheckRepository.save(new UrlCheck(200, "title " + i, "", "", url.getId()));
+        }
+        UrlCheckRepository.save(new UrlCheck(200, "title", "", "", other.getId()));
+
+        var ids = List.of(url.getId(), other.getId());
+        assertThat(UrlCheckRepository.getUrlIdsWithMoreChecksThan(ids, 2)).containsExactly(url.getId());
+        assertThat(UrlCheckRepository.getUrlIdsWithMoreChecksThan(ids, 0)).containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(UrlCheckRepository.getUrlIdsWithMoreChecksThan(ids, 3)).isEmpty();
+    }
+
+    @Test
+    void testLatestCheckFollowsSaves() throws SQLException {
+        var other = new Url("https://google.com");
+        UrlRepository.save(other);
+        UrlCheckRepository.save(new UrlCheck(500, "old", "", "", url.getId()));
+        var latest = new UrlCheck(200, "new", "", "", url.getId());
+        UrlCheckRepository.save(latest);
+
+        var checks = UrlCheckRepository.getLatestChecks(List.of(url.getId(), other.getId()));
+        assertThat(checks).containsOnlyKeys(url.getId());
+        assertThat(checks.get(url.getId()).getId()).isEqualTo(latest.getId());
+        assertThat(checks.get(url.getId()).getTitle()).isEqualTo("new");
+
+        assertThat(UrlCheckRepository.getLatestChecks().get(url.getId()).getId()).isEqualTo(latest.getId());
+    }
+
+    @Test
+    void testSaveAllAsBatch() throws SQLException {
+        var first = new UrlCheck(200, "first", "", "", url.getId());
+        var second = new UrlCheck(200, "second", "", "", url.getId());
+        UrlCheckRepository.saveAll(List.of(first, second));
+
+        assertThat(first.getId()).isNotNull();
+        assertThat(second.getId()).isGreaterThan(first.getId());
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).hasSize(2);
+        assertThat(UrlCheckRepository.findLatest(url.getId()).orElseThrow().getTitle()).isEqualTo("second");
+    }
+
+    @Test
+    void testLatestChecksForNoIds() throws SQLException {
+        assertThat(UrlCheckRepository.getLatestChecks(List.of())).isEmpty();
+    }
+
+    @Test
+    void testIdenticalCheckOnlyConfirmsLatest() throws SQLException {
+        var first = new UrlCheck(200, "title", "h1", "description", url.getId());
+        UrlCheckRepository.save(first);
+        var repeat = new UrlCheck(200, "title", "h1", "description", url.getId());
+        repeat.setEtag("\"v2\"");
+        UrlCheckRepository.save(repeat);
+
+        assertThat(repeat.getId()).isEqualTo(first.getId());
+        assertThat(repeat.getRepeatCount()).isEqualTo(1);
+        var checks = UrlCheckRepository.getEntitiesByUrlId(url.getId());
+        assertThat(checks).hasSize(1);
+        assertThat(checks.getFirst().getRepeatCount()).isEqualTo(1);
+        assertThat(checks.getFirst().getLastConfirmedAt()).isNotNull();
+        assertThat(UrlCheckRepository.findLatest(url.getId()).orElseThrow().getEtag()).isEqualTo("\"v2\"");
+
+        UrlCheckRepository.save(new UrlCheck(200, "other title", "h1", "description", url.getId()));
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).hasSize(2);
+    }
+
+    @Test
+    void testSaveAllConfirmsRepeats() throws SQLException {
+        var other = new Url("https://google.com");
+        UrlRepository.save(other);
+        UrlCheckRepository.save(new UrlCheck(200, "same", "", "", url.getId()));
+        UrlCheckRepository.save(new UrlCheck(200, "old", "", "", other.getId()));
+
+        UrlCheckRepository.saveAll(List.of(new UrlCheck(200, "same", "", "", url.getId()),
+                new UrlCheck(200, "new", "", "", other.getId())));
+
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).extracting(UrlCheck::getRepeatCount)
+            .containsExactly(1);
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(other.getId())).extracting(UrlCheck::getTitle)
+            .containsExactly("new", "old");
+    }
+
+    @Test
+    void testResponseTimesAreKeptPerUrl() throws SQLException {
+        for (var millis : new int[] {100, 200, 300}) {
+            var check = new UrlCheck(200, "same", "", "", url.getId());
+            check.setResponseTimeMs(millis);
+            check.setTtfbMs(millis / 2);
+            check.setDownloadMs(millis / 2);
+            UrlCheckRepository.save(check);
+        }
+        UrlCheckRepository.save(new UrlCheck(200, "untimed", "", "", url.getId()));
+
+        var latest = UrlCheckRepository.getEntitiesByUrlId(url.getId());
+        assertThat(latest).extracting(UrlCheck::getResponseTimeMs).containsExactly(null, 300);
+        var times = UrlResponseTimeRepository.getSince(url.getId(), LocalDate.now().atStartOfDay());
+        assertThat(times.getCount()).isEqualTo(3);
+        assertThat(times.percentile(0.5)).isBetween(200L, 220L);
+    }
+
+    @Test
+    void testConcurrentFirstResponseTimesOfADayAreAllKept() throws Exception {
+        var saves = 8;
+        var ready = new CountDownLatch(saves);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = new ArrayList<Future<?>>();
+            for (var i = 0; i < saves; i++) {
+                var check = new UrlCheck(200, "title " + i, "", "", url.getId());
+                check.setResponseTimeMs(100 + i);
+                futures.add(executor.submit(() -> {
+                    ready.countDown();
+                    ready.await();
+                    UrlCheckRepository.save(check);
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        }
+
+        var times = UrlResponseTimeRepository.getSince(url.getId(), LocalDate.now().atStartOfDay());
+        assertThat(times.getCount()).isEqualTo(saves);
+    }
+}
@@ -3,13 +3,19 @@ package hexlet.code.repository;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.zaxxer.hikari.HikariDataSource;
+
 import hexlet.code.App;
 import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
 
 class UrlRepositoryTest {
 
@@ -55,6 +61,19 @@ class UrlRepositoryTest {
             .isInstanceOf(SQLException.class);
     }
 
+    @Test
+    void testSaveIfAbsent() throws SQLException {
+        var url = new Url("https://example.com");
+        assertThat(UrlRepository.saveIfAbsent(url)).isTrue();
+        assertThat(url.getId()).isNotNull();
+
+        var duplicate = new Url("https://example.com");
+        assertThat(UrlRepository.saveIfAbsent(duplicate)).isFalse();
+        assertThat(duplicate.getId()).isEqualTo(url.getId());
+        assertThat(duplicate.getCreatedAt()).isNotNull();
+        assertThat(UrlRepository.getEntities()).hasSize(1);
+    }
+
     @Test
     void testFindExistingUrl() throws SQLException {
         var originalUrl = new Url("https://example.com");
@@ -67,6 +86,41 @@ class UrlRepositoryTest {
         assertThat(found.get().getId()).isEqualTo(originalUrl.getId());
     }
 
+    @Test
+    void testFindIsServedFromCache() throws SQLException {
+        var url = new Url("https://example.com");
+        UrlRepository.save(url);
+        var hits = UrlRepository.getCacheHits();
+
+        assertThat(UrlRepository.find(url.getId())).containsSame(url);
+        assertThat(UrlRepository.findByName("https://example.com")).containsSame(url);
+        assertThat(UrlRepository.getCacheHits()).isEqualTo(hits + 2);
+
+        UrlRepository.clearCache();
+        var misses = UrlRepository.getCacheMisses();
+        var reloaded = UrlRepository.find(url.getId());
+        assertThat(reloaded).isPresent();
+        assertThat(reloaded.get().getName()).isEqualTo("https://example.com");
+        assertThat(UrlRepository.getCacheMisses()).isEqualTo(misses + 1);
+        assertThat(UrlRepository.find(url.getId())).containsSame(reloaded.get());
+    }
+
+    @Test
+    void testFindAllMixesCachedAndLoadedUrls() throws SQLException {
+        var cached = new Url("https://example.com");
+        var loaded = new Url("https://google.com");
+        UrlRepository.save(cached);
+        UrlRepository.save(loaded);
+        UrlRepository.clearCache();
+        UrlRepository.find(cached.getId());
+
+        var found = UrlRepository.findAll(List.of(cached.getId(), loaded.getId(), 999L));
+
+        assertThat(found).containsOnlyKeys(cached.getId(), loaded.getId());
+        assertThat(found.get(loaded.getId()).getName()).isEqualTo("https://google.com");
+        assertThat(UrlRepository.find(loaded.getId())).containsSame(found.get(loaded.getId()));
+    }
+
     @Test
     void testFindNonExistentUrl() throws SQLException {
         var found = UrlRepository.find(999L);
@@ -126,4 +180,69 @@ class UrlRepositoryTest {
         var urls = UrlRepository.getEntities();
         assertThat(urls).isEmpty();
     }
+
+    @Test
+    void testGetPageAfterAndBefore() throws SQLException {
+        for (var i = 1; i <= 5; i++) {
+            UrlRepository.save(new Url("https://site" + i + ".com"));
+        }
+
+        var firstPage = UrlRepository.getPageAfter(0, 2);
+        assertThat(firstPage).extracting(Url::getName)
+            .containsExactly("https://site1.com", "https://site2.com");
+
+        var nextPage = UrlRepository.getPageAfter(firstPage.getLast().getId(), 2);
+        assertThat(nextPage).extracting(Url::getName)
+            .containsExactly("https://site3.com", "https://site4.com");
+
+        var prevPage = UrlRepository.getPageBefore(nextPage.getFirst().getId(), 2);
+        assertThat(prevPage).extracting(Url::getName)
+            .containsExactly("https://site1.com", "https://site2.com");
+
+        assertThat(UrlRepository.count()).isEqualTo(5);
+    }
+
+    @Test
+    void testGetDueForCheck() throws SQLException {
+        var first = new Url("https://first.com");
+        var second = new Url("https://second.com");
+        var unchecked = new Url("https://unchecked.com");
+        UrlRepository.save(first);
+        UrlRepository.save(second);
+        UrlRepository.save(unchecked);
+        UrlCheckRepository.save(new UrlCheck(200, "t", "h", "d", second.getId()));
+        UrlCheckRepository.save(new UrlCheck(200, "t", "h", "d", first.getId()));
+
+        assertThat(UrlRepository.getDueForCheck(LocalDateTime.now().minusDays(1), 10)).extracting(Url::getName)
+            .containsExactly("https://unchecked.com");
+        // Never checked urls come first, then the longest unchecked ones.
+        var later = LocalDateTime.now().plusDays(1);
+        assertThat(UrlRepository.getDueForCheck(later, 10)).extracting(Url::getName)
+            .containsExactly("https://unchecked.com", "https://second.com", "https://first.com");
+        assertThat(UrlRepository.getDueForCheck(later, 2)).extracting(Url::getName)
+            .containsExactly("https://unchecked.com", "https://second.com");
+    }
+
+    @Test
+    void testSaveAllIfAbsent() throws SQLException {
+        UrlRepository.save(new Url("https://b.com"));
+
+        var added = UrlRepository.saveAllIfAbsent(List.of("https://a.com", "https://b.com", "https://c.com"));
+
+        assertThat(added).isEqualTo(2);
+        assertThat(UrlRepository.getEntities()).extracting(Url::getName)
+            .containsExactly("https://b.com", "https://a.com", "https://c.com");
+        assertThat(UrlRepository.saveAllIfAbsent(List.of())).isZero();
+    }
+
+    @Test
+    void testCheckLaneUsesCheckPool() {
+        var pagePool = UrlRepository.getDataSource();
+        var lanePool = new AtomicReference<HikariDataSource>();
+
+        BaseRepository.runInCheckLane(() -> lanePool.set(UrlRepository.getDataSource()));
+
+        assertThat(lanePool.get()).isSameAs(BaseRepository.getCheckDataSource()).isNotSameAs(pagePool);
+        assertThat(UrlRepository.getDataSource()).isSameAs(pagePool);
+    }
 }
@@ -0,0 +1,76 @@
+package hexlet.code.service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import hexlet.code.App;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.model.UrlCheckRollup;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlCheckRollupRepository;
+import hexlet.code.repository.UrlRepository;
+
+class CheckPrunerTest {
+    private Url url;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        App.getApp();
+        UrlRepository.removeAll();
+        url = new Url("https://example.com");
+        UrlRepository.save(url);
+    }
+
+    @Test
+    void testOldChecksAreRolledUp() throws Exception {
+        // The second check repeats the first, so it is stored as a repeat of the same row.
+        UrlCheckRepository.save(new UrlCheck(200, "a", "", "", url.getId()));
+        UrlCheckRepository.save(new UrlCheck(200, "a", "", "", url.getId()));
+        UrlCheckRepository.save(new UrlCheck(500, "error", "", "", url.getId()));
+        UrlCheckRepository.save(new UrlCheck(404, "missing", "", "", url.getId()));
+        UrlCheckRepository.save(new UrlCheck(200, "b", "", "", url.getId()));
+        UrlCheckRepository.save(new UrlCheck(200, "c", "", "", url.getId()));
+
+        assertThat(CheckPruner.prune(2)).isEqualTo(3);
+
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).extracting(UrlCheck::getTitle)
+            .containsExactly("c", "b");
+        assertThat(UrlCheckRepository.findLatest(url.getId()).orElseThrow().getTitle()).isEqualTo("c");
+        var rollups = UrlCheckRollupRepository.getByUrlId(url.getId(), 10);
+        assertThat(rollups).hasSize(1);
+        var rollup = rollups.getFirst();
+        assertThat(rollup.getCheckCount()).isEqualTo(4);
+        assertThat(rollup.getStatus2xx()).isEqualTo(2);
+        assertThat(rollup.getStatus4xx()).isEqualTo(1);
+        assertThat(rollup.getStatus5xx()).isEqualTo(1);
+        assertThat(rollup.getChangeCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testChangesAreCountedAcrossRuns() throws Exception {
+        UrlCheckRepository.save(new UrlCheck(200, "a", "", "", url.getId()));
+        UrlCheckRepository.save(new UrlCheck(200, "b", "", "", url.getId()));
+        CheckPruner.prune(1);
+        UrlCheckRepository.save(new UrlCheck(200, "b", "", "", url.getId()));
+        UrlCheckRepository.save(new UrlCheck(200, "c", "", "", url.getId()));
+
+        assertThat(CheckPruner.prune(1)).isEqualTo(1);
+        assertThat(UrlCheckRollupRepository.getByUrlId(url.getId(), 10)).extracting(UrlCheckRollup::getCheckCount,
+                UrlCheckRollup::getChangeCount).containsExactly(tuple(3, 1));
+    }
+
+    @Test
+    void testUrlsWithinRetentionAreLeftAlone() throws Exception {
+        UrlCheckRepository.save(new UrlCheck(200, "a", "", "", url.getId()));
+
+        assertThat(CheckPruner.prune(1)).isZero();
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).hasSize(1);
+        assertThat(UrlCheckRollupRepository.getByUrlId(url.getId(), 10)).isEmpty();
+    }
+}
@@ -0,0 +1,69 @@
+package hexlet.code.service;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import hexlet.code.App;
+import hexlet.code.model.Url;
+import hexlet.code.repository.UrlRepository;
+import mockwebserver3.MockWebServer;
+
+class RecheckSchedulerTest {
+    // Default RECHECK_HOST_RATE_PER_MINUTE is 6, so one host gets a slot every 10 seconds.
+    private static final long SPACING = 10_000;
+
+    @AfterEach
+    void tearDown() {
+        RecheckScheduler.stop();
+    }
+
+    @Test
+    void testSlotsForOneHostAreSpaced() {
+        var start = 1_000_000L;
+        assertThat(RecheckScheduler.reserveSlot("a.com", start)).isEqualTo(start);
+        assertThat(RecheckScheduler.reserveSlot("a.com", start + 1)).isEqualTo(start + SPACING);
+        assertThat(RecheckScheduler.reserveSlot("a.com", start)).isEqualTo(start + 2 * SPACING);
+    }
+
+    @Test
+    void testHostsDoNotShareSlots() {
+        var start = 2_000_000L;
+        assertThat(RecheckScheduler.reserveSlot("a.com", start)).isEqualTo(start);
+        assertThat(RecheckScheduler.reserveSlot("b.com", start)).isEqualTo(start);
+    }
+
+    @Test
+    void testLateRequestIsNotDelayed() {
+        var start = 3_000_000L;
+        RecheckScheduler.reserveSlot("a.com", start);
+        assertThat(RecheckScheduler.reserveSlot("a.com", start + 5 * SPACING)).isEqualTo(start + 5 * SPACING);
+    }
+
+    @Test
+    void testFailedCheckIsNotDueAgainBeforeInterval() throws Exception {
+        App.getApp();
+        UrlRepository.removeAll();
+        // The server is closed again right away, so the check gets a refused connection.
+        var server = new MockWebServer();
+        server.start();
+        var url = new Url(server.url("/").url().toString());
+        server.close();
+        UrlRepository.save(url);
+        var threshold = LocalDateTime.now().minusHours(1);
+        assertThat(UrlRepository.getDueForCheck(threshold, 10)).extracting(Url::getId).containsExactly(url.getId());
+
+        assertThat(UrlCheckService.submit(url)).isEqualTo(UrlCheckService.Submission.STARTED);
+        var deadline = System.currentTimeMillis() + 5_000;
+        while (UrlCheckService.isPending(url.getId()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertThat(UrlCheckService.getFailure(url.getId())).isPresent();
+        assertThat(UrlRepository.getDueForCheck(threshold, 10)).isEmpty();
+        assertThat(UrlRepository.getDueForCheck(LocalDateTime.now().plusMinutes(1), 10))
+                .extracting(Url::getId).containsExactly(url.getId());
+    }
+}
@@ -0,0 +1,81 @@
+package hexlet.code.service;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLHandshakeException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import hexlet.code.App;
+import hexlet.code.model.Url;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import mockwebserver3.MockResponse;
+import mockwebserver3.MockWebServer;
+
+class UrlCheckServiceTest {
+
+    @BeforeEach
+    void setUp() throws Exception {
+        App.getApp();
+        UrlRepository.removeAll();
+    }
+
+    @Test
+    void testChecksOfBusyHostWaitWithoutTakingWorkers() throws Exception {
+        var server = new MockWebServer();
+        for (var i = 0; i < 6; i++) {
+            server.enqueue(new MockResponse.Builder()
+                    .headersDelay(200, TimeUnit.MILLISECONDS)
+                    .body("<title>page</title>")
+                    .build());
+        }
+        server.start();
+        var urls = new ArrayList<Url>();
+        for (var i = 0; i < 6; i++) {
+            var url = new Url(server.url("/page" + i).url().toString());
+            UrlRepository.save(url);
+            urls.add(url);
+        }
+
+        for (var url : urls) {
+            assertThat(UrlCheckService.submit(url)).isEqualTo(UrlCheckService.Submission.STARTED);
+        }
+        // CHECK_PER_HOST_CONCURRENCY is 2 by default.
+        assertThat(UrlCheckService.getWaitingForHost()).isEqualTo(4);
+        assertThat(UrlCheckService.getActiveHosts()).isEqualTo(1);
+
+        var deadline = System.currentTimeMillis() + 10_000;
+        while ((UrlCheckService.getPendingCount() > 0 || UrlCheckService.getActiveHosts() > 0)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        for (var url : urls) {
+            assertThat(UrlCheckRepository.findLatest(url.getId())).isPresent();
+        }
+        assertThat(UrlCheckService.getWaitingForHost()).isZero();
+        assertThat(UrlCheckService.getActiveHosts()).isZero();
+        server.close();
+    }
+
+    @Test
+    void testFailuresAreDescribedByCause() {
+        assertThat(UrlCheckService.describe(new HttpTimeoutException("slow"))).isEqualTo("Сайт не ответил вовремя");
+        assertThat(UrlCheckService.describe(new UnknownHostException("nowhere"))).isEqualTo("Домен не найден");
+        var unresolved = new ConnectException();
+        unresolved.initCause(new UnresolvedAddressException());
+        assertThat(UrlCheckService.describe(unresolved)).isEqualTo("Домен не найден");
+        assertThat(UrlCheckService.describe(new ConnectException("refused"))).isEqualTo("Сайт не принимает соединения");
+        assertThat(UrlCheckService.describe(new SSLHandshakeException("bad certificate")))
+                .isEqualTo("Не удалось установить защищённое соединение");
+        assertThat(UrlCheckService.describe(new IOException("reset"))).isEqualTo("Соединение с сайтом прервано");
+    }
+}
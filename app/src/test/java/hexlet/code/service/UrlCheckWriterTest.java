@@ -0,0 +1,108 @@
+package hexlet.code.service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import hexlet.code.App;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.HeadExtractor;
+
+class UrlCheckWriterTest {
+    private Url url;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        App.getApp();
+        UrlRepository.removeAll();
+        url = new Url("https://example.com");
+        UrlRepository.save(url);
+    }
+
+    @AfterEach
+    void tearDown() {
+        UrlCheckWriter.stop();
+    }
+
+    @Test
+    void testWritesDirectlyWhenNotStarted() throws Exception {
+        UrlCheckWriter.write(new UrlCheck(200, "t", "h", "d", url.getId()));
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).hasSize(1);
+    }
+
+    @Test
+    void testStopFlushesBufferedChecks() throws Exception {
+        UrlCheckWriter.start();
+        assertThat(UrlCheckWriter.isWriteBehind()).isTrue();
+        for (var i = 0; i < 3; i++) {
+            UrlCheckWriter.write(new UrlCheck(200, "title " + i, "", "", url.getId()));
+        }
+        UrlCheckWriter.stop();
+
+        assertThat(UrlCheckWriter.getBuffered()).isZero();
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).hasSize(3);
+        assertThat(UrlCheckRepository.findLatest(url.getId()).orElseThrow().getTitle()).isEqualTo("title 2");
+    }
+
+    @Test
+    void testBufferedCheckIsReportedOnceStored() throws Exception {
+        UrlCheckWriter.start();
+        var stored = new AtomicReference<Boolean>();
+        assertThat(UrlCheckWriter.write(new UrlCheck(200, "t", "", "", url.getId()), stored::set)).isTrue();
+        UrlCheckWriter.stop();
+
+        assertThat(stored.get()).isTrue();
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).hasSize(1);
+    }
+
+    @Test
+    void testDroppedChecksAreReported() throws Exception {
+        UrlCheckWriter.start();
+        var stored = new AtomicReference<Boolean>();
+        // Longer than the title column, so every attempt to flush it fails.
+        var check = new UrlCheck(200, "t".repeat(300), "", "", url.getId());
+        assertThat(UrlCheckWriter.write(check, stored::set)).isTrue();
+        UrlCheckWriter.stop();
+
+        assertThat(stored.get()).isFalse();
+        assertThat(UrlCheckRepository.getEntitiesByUrlId(url.getId())).isEmpty();
+    }
+
+    @Test
+    void testBadCheckDoesNotDropTheRestOfItsBatch() throws Exception {
+        UrlCheckWriter.start();
+        var bad = new AtomicReference<Boolean>();
+        var good = new AtomicReference<Boolean>();
+        UrlCheckWriter.write(new UrlCheck(200, "t".repeat(300), "", "", url.getId()), bad::set);
+        UrlCheckWriter.write(new UrlCheck(200, "fine", "", "", url.getId()), good::set);
+        UrlCheckWriter.stop();
+
+        assertThat(bad.get()).isFalse();
+        assertThat(good.get()).isTrue();
+        assertThat(UrlCheckRepository.findLatest(url.getId()).orElseThrow().getTitle()).isEqualTo("fine");
+    }
+
+    @Test
+    void testFetchedTitleIsCutToTheColumn() throws Exception {
+        var fields = new HeadExtractor.Fields("t".repeat(300), "h".repeat(254) + "\uD83D\uDE00", "");
+        var result = new PageFetcher.Result(200, fields, PageFetcher.Validators.NONE, 0, true, false,
+                PageFetcher.Timing.NONE);
+        var check = result.toCheck(url.getId());
+        assertThat(check.getTitle()).hasSize(255);
+        assertThat(check.getH1()).hasSize(254);
+
+        UrlCheckWriter.start();
+        var stored = new AtomicReference<Boolean>();
+        UrlCheckWriter.write(check, stored::set);
+        UrlCheckWriter.stop();
+        assertThat(stored.get()).isTrue();
+    }
+}
@@ -0,0 +1,40 @@
+package hexlet.code.service;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gg.jte.ContentType;
+import gg.jte.TemplateEngine;
+import gg.jte.resolve.ResourceCodeResolver;
+import hexlet.code.App;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+
+class WarmupTest {
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        App.getApp();
+        UrlRepository.removeAll();
+    }
+
+    @Test
+    void testOpensPoolAndRendersPages() throws SQLException {
+        var url = new Url("https://example.com");
+        UrlRepository.save(url);
+        UrlCheckRepository.save(new UrlCheck(200, "t", "h", "d", url.getId()));
+        var templateEngine = TemplateEngine.create(
+                new ResourceCodeResolver("templates", getClass().getClassLoader()), ContentType.Html);
+
+        Warmup.run(UrlRepository.getDataSource(), templateEngine);
+
+        var pool = UrlRepository.getDataSource().getHikariPoolMXBean();
+        assertThat(pool.getTotalConnections()).isEqualTo(UrlRepository.getDataSource().getMaximumPoolSize());
+        assertThat(pool.getActiveConnections()).isZero();
+    }
+}
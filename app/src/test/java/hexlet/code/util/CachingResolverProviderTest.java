@@ -0,0 +1,66 @@
+package hexlet.code.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.net.spi.InetAddressResolver;
+import java.net.spi.InetAddressResolver.LookupPolicy;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CachingResolverProviderTest {
+    private static final LookupPolicy POLICY = LookupPolicy.of(LookupPolicy.IPV4);
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final InetAddressResolver delegate = new InetAddressResolver() {
+        @Override
+        public Stream<InetAddress> lookupByName(String host, LookupPolicy lookupPolicy)
+                throws UnknownHostException {
+            lookups.incrementAndGet();
+            if (host.endsWith(".invalid")) {
+                throw new UnknownHostException(host);
+            }
+            return Stream.of(InetAddress.getByAddress(host, new byte[] {10, 0, 0, 1}));
+        }
+
+        @Override
+        public String lookupByAddress(byte[] address) {
+            return "reverse";
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        CachingResolverProvider.clear();
+    }
+
+    @Test
+    void testRepeatedLookupIsCached() throws UnknownHostException {
+        var resolver = CachingResolverProvider.wrap(delegate);
+        var hits = CachingResolverProvider.getHits();
+
+        var first = resolver.lookupByName("example.com", POLICY).toList();
+        var second = resolver.lookupByName("example.com", POLICY).toList();
+
+        assertThat(second).isEqualTo(first);
+        assertThat(lookups).hasValue(1);
+        assertThat(CachingResolverProvider.getHits()).isEqualTo(hits + 1);
+        assertThat(CachingResolverProvider.getSize()).isEqualTo(1);
+    }
+
+    @Test
+    void testFailuresAreNotCached() {
+        var resolver = CachingResolverProvider.wrap(delegate);
+
+        assertThatThrownBy(() -> resolver.lookupByName("down.invalid", POLICY))
+            .isInstanceOf(UnknownHostException.class);
+        assertThatThrownBy(() -> resolver.lookupByName("down.invalid", POLICY))
+            .isInstanceOf(UnknownHostException.class);
+
+        assertThat(lookups).hasValue(2);
+        assertThat(CachingResolverProvider.getSize()).isZero();
+    }
+}
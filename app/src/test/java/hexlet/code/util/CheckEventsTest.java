@@ -0,0 +1,78 @@
+package hexlet.code.util;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+import hexlet.code.model.UrlCheck;
+
+class CheckEventsTest {
+
+    @Test
+    void testSubscribersOnlyGetTheirUrl() throws InterruptedException {
+        try (var one = CheckEvents.subscribe(1L).orElseThrow();
+             var all = CheckEvents.subscribe(null).orElseThrow()) {
+            CheckEvents.onCheckStarted(2L);
+            CheckEvents.onCheckStarted(1L);
+
+            var event = one.next(1, TimeUnit.SECONDS);
+            assertThat(event.name()).isEqualTo(CheckEvents.STARTED);
+            assertThat(event.data()).isEqualTo("{\"urlId\":1}");
+            assertThat(one.next(0, TimeUnit.SECONDS)).isNull();
+
+            assertThat(all.next(1, TimeUnit.SECONDS).urlId()).isEqualTo(2L);
+            assertThat(all.next(1, TimeUnit.SECONDS).urlId()).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void testCompletedAndFailedCarryResult() throws InterruptedException {
+        try (var events = CheckEvents.subscribe(7L).orElseThrow()) {
+            var check = new UrlCheck(200, "Title", "", "", 7L);
+            check.setId(3L);
+            check.setResponseTimeMs(120);
+            CheckEvents.onCheckSaved(check);
+            CheckEvents.onCheckFailed(7L, "Сайт не ответил вовремя");
+
+            var completed = events.next(1, TimeUnit.SECONDS);
+            assertThat(completed.name()).isEqualTo(CheckEvents.COMPLETED);
+            assertThat(completed.data()).contains("\"checkId\":3", "\"statusCode\":200", "\"title\":\"Title\"",
+                    "\"responseTimeMs\":120");
+            var failed = events.next(1, TimeUnit.SECONDS);
+            assertThat(failed.name()).isEqualTo(CheckEvents.FAILED);
+            assertThat(failed.data()).contains("Сайт не ответил вовремя");
+        }
+    }
+
+    @Test
+    void testSlowSubscriberIsDropped() throws InterruptedException {
+        var droppedBefore = CheckEvents.getDroppedCount();
+        try (var slow = CheckEvents.subscribe(5L).orElseThrow();
+             var fast = CheckEvents.subscribe(5L).orElseThrow()) {
+            var received = 0;
+            for (var i = 0; i < 1000; i++) {
+                CheckEvents.onCheckStarted(5L);
+                if (fast.next(0, TimeUnit.SECONDS) != null) {
+                    received++;
+                }
+            }
+
+            assertThat(slow.isDropped()).isTrue();
+            assertThat(fast.isDropped()).isFalse();
+            assertThat(received).isEqualTo(1000);
+            assertThat(CheckEvents.getDroppedCount()).isEqualTo(droppedBefore + 1);
+            assertThat(slow.next(0, TimeUnit.SECONDS)).isNotNull();
+        }
+    }
+
+    @Test
+    void testClosedSubscriptionIsRemoved() {
+        var before = CheckEvents.getSubscriberCount();
+        var subscription = CheckEvents.subscribe(9L).orElseThrow();
+        assertThat(CheckEvents.getSubscriberCount()).isEqualTo(before + 1);
+
+        subscription.close();
+        assertThat(CheckEvents.getSubscriberCount()).isEqualTo(before);
+    }
+}
@@ -0,0 +1,25 @@
+package hexlet.code.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class FingerprintTest {
+
+    @Test
+    void testSameValuesGiveSameFingerprint() {
+        assertThat(Fingerprint.of(200, "title", "h1", null)).isEqualTo(Fingerprint.of(200, "title", "h1", null));
+    }
+
+    @Test
+    void testFingerprintIsStable() {
+        // FNV-1a of nothing is the offset basis; the value must not change between releases.
+        assertThat(Fingerprint.of()).isEqualTo(0xcbf29ce484222325L);
+    }
+
+    @Test
+    void testBoundariesAndNullsMatter() {
+        assertThat(Fingerprint.of("ab", "c")).isNotEqualTo(Fingerprint.of("a", "bc"));
+        assertThat(Fingerprint.of((Object) null)).isNotEqualTo(Fingerprint.of(""));
+        assertThat(Fingerprint.of(200, "title")).isNotEqualTo(Fingerprint.of(500, "title"));
+    }
+}
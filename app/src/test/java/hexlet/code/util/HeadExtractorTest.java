@@ -0,0 +1,59 @@
+package hexlet.code.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class HeadExtractorTest {
+    @Test
+    void testExtractsAllFields() throws IOException {
+        var html = "<html><head><title> Page  title </title>"
+                + "<meta name=\"Description\" content=\"about the page\"></head>"
+                + "<body><h1>Main <span>header</span></h1><h1>Second</h1></body></html>";
+        var fields = HeadExtractor.extract(new StringReader(html));
+        assertThat(fields.title()).isEqualTo("Page title");
+        assertThat(fields.h1()).isEqualTo("Main header");
+        assertThat(fields.description()).isEqualTo("about the page");
+    }
+
+    @Test
+    void testMissingFieldsAreEmpty() throws IOException {
+        var fields = HeadExtractor.extract(new StringReader("<p>no metadata</p>"));
+        assertThat(fields).isEqualTo(HeadExtractor.Fields.EMPTY);
+    }
+
+    @Test
+    void testStopsReadingOnceFieldsAreFound() throws IOException {
+        var head = "<title>t</title><meta name=\"description\" content=\"d\"><h1>h</h1>";
+        var reader = new CountingReader(new StringReader(head + "<p>filler</p>".repeat(100_000)));
+        var fields = HeadExtractor.extract(reader);
+        assertThat(fields).isEqualTo(new HeadExtractor.Fields("t", "h", "d"));
+        assertThat(reader.count).isLessThan(100_000);
+    }
+
+    private static final class CountingReader extends Reader {
+        private final Reader delegate;
+        private long count;
+
+        CountingReader(Reader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            var read = delegate.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
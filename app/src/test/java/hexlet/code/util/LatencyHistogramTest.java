@@ -0,0 +1,55 @@
+package hexlet.code.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentilesAreWithinBucketError() {
+        var histogram = new LatencyHistogram();
+        for (var millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.percentile(0.5)).isBetween(500L, 550L);
+        assertThat(histogram.percentile(0.95)).isBetween(950L, 1045L);
+        assertThat(histogram.percentile(0.99)).isBetween(990L, 1089L);
+        assertThat(new LatencyHistogram().percentile(0.5)).isZero();
+    }
+
+    @Test
+    void testMergeEqualsRecordingEverything() {
+        var fast = new LatencyHistogram();
+        var slow = new LatencyHistogram();
+        var all = new LatencyHistogram();
+        for (var i = 0; i < 90; i++) {
+            fast.record(20);
+            all.record(20);
+        }
+        for (var i = 0; i < 10; i++) {
+            slow.record(3000);
+            all.record(3000);
+        }
+
+        fast.merge(slow);
+        assertThat(fast.encode()).isEqualTo(all.encode());
+        assertThat(fast.percentile(0.5)).isEqualTo(all.percentile(0.5));
+        assertThat(fast.percentile(0.95)).isGreaterThanOrEqualTo(3000);
+    }
+
+    @Test
+    void testEncodeRoundTrip() {
+        var histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(120);
+        histogram.record(120);
+        histogram.record(1_000_000);
+
+        var decoded = LatencyHistogram.decode(histogram.encode());
+        assertThat(decoded.getCount()).isEqualTo(4);
+        assertThat(decoded.encode()).isEqualTo(histogram.encode());
+        assertThat(LatencyHistogram.decode("").getCount()).isZero();
+    }
+}
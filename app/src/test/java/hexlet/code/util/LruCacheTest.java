@@ -0,0 +1,43 @@
+package hexlet.code.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.Test;
+
+class LruCacheTest {
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        var cache = new LruCache<String, Integer>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo(1);
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo(3);
+    }
+
+    @Test
+    void testCountsHitsAndMisses() {
+        var cache = new LruCache<String, Integer>(10);
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("a");
+        cache.get("missing");
+
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void testRemoveIf() {
+        var cache = new LruCache<String, Integer>(10);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.removeIf((key, value) -> value % 2 == 0);
+
+        assertThat(cache.get("a")).isEqualTo(1);
+        assertThat(cache.get("b")).isNull();
+    }
+}
@@ -0,0 +1,61 @@
+package hexlet.code.util;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+
+class MetricsTest {
+    @Test
+    void testHistogramBucketsAreCumulative() {
+        var histogram = Metrics.histogram("test_buckets_seconds", "Test histogram", Metrics.label("case", "a"));
+        histogram.observe(TimeUnit.MICROSECONDS.toNanos(500));
+        histogram.observe(TimeUnit.MILLISECONDS.toNanos(20));
+        histogram.observe(TimeUnit.SECONDS.toNanos(30));
+
+        assertThat(histogram.getCount()).isEqualTo(3);
+        var scraped = Metrics.scrape();
+        assertThat(scraped)
+            .contains("# TYPE test_buckets_seconds histogram")
+            .contains("test_buckets_seconds_bucket{case=\"a\",le=\"0.001\"} 1")
+            .contains("test_buckets_seconds_bucket{case=\"a\",le=\"0.025\"} 2")
+            .contains("test_buckets_seconds_bucket{case=\"a\",le=\"10.0\"} 2")
+            .contains("test_buckets_seconds_bucket{case=\"a\",le=\"+Inf\"} 3")
+            .contains("test_buckets_seconds_count{case=\"a\"} 3");
+    }
+
+    @Test
+    void testSameSeriesIsReused() {
+        var first = Metrics.histogram("test_reuse_seconds", "Test histogram", "");
+        assertThat(Metrics.histogram("test_reuse_seconds", "Test histogram", "")).isSameAs(first);
+    }
+
+    @Test
+    void testGaugeIsReadAtScrape() {
+        var value = new int[] {1};
+        Metrics.gauge("test_gauge", "Test gauge", () -> value[0]);
+        value[0] = 7;
+        assertThat(Metrics.scrape()).contains("# TYPE test_gauge gauge\ntest_gauge 7.0");
+    }
+
+    @Test
+    void testLabelledGauges() {
+        Metrics.gauge("test_pool_gauge", "Test gauge", Metrics.label("pool", "web"), () -> 1);
+        Metrics.gauge("test_pool_gauge", "Test gauge", Metrics.label("pool", "check"), () -> 2);
+        assertThat(Metrics.scrape())
+            .contains("test_pool_gauge{pool=\"check\"} 2.0\ntest_pool_gauge{pool=\"web\"} 1.0");
+    }
+
+    @Test
+    void testTypeMismatchIsRejected() {
+        Metrics.gauge("test_typed", "Test gauge", () -> 0);
+        assertThatThrownBy(() -> Metrics.histogram("test_typed", "Test histogram", ""))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testLabelValuesAreEscaped() {
+        assertThat(Metrics.label("template", "a\"b")).isEqualTo("template=\"a\\\"b\"");
+    }
+}
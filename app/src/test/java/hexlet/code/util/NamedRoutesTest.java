@@ -26,6 +26,12 @@ class NamedRoutesTest {
         assertEquals("/urls/{id}", NamedRoutes.urlPath("{id}"));
     }
 
+    @Test
+    void testEventsPaths() {
+        assertEquals("/events", NamedRoutes.eventsPath());
+        assertEquals("/urls/123/events", NamedRoutes.urlEventsPath(123L));
+    }
+
     @Test
     void testPrivateConstructor() throws Exception {
         var constructor = NamedRoutes.class.getDeclaredConstructor();
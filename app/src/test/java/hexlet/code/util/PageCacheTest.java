@@ -0,0 +1,71 @@
+package hexlet.code.util;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import hexlet.code.dto.UrlPage;
+import hexlet.code.dto.UrlsPage;
+import hexlet.code.model.Url;
+
+class PageCacheTest {
+
+    @BeforeEach
+    void setUp() {
+        PageCache.clear();
+    }
+
+    private static Url url(long id) {
+        var url = new Url("https://example" + id + ".com");
+        url.setId(id);
+        return url;
+    }
+
+    @Test
+    void testSaveOfOtherUrlKeepsPage() {
+        var generation = PageCache.generation();
+        var page = new UrlPage(url(1));
+        PageCache.putUrlPage(1L, page, generation);
+        PageCache.onCheckSaved(2L);
+
+        assertThat(PageCache.getUrlPage(1L)).isSameAs(page);
+
+        PageCache.onCheckSaved(1L);
+        assertThat(PageCache.getUrlPage(1L)).isNull();
+    }
+
+    @Test
+    void testPageBuiltBeforeSaveIsNotServed() {
+        var generation = PageCache.generation();
+        PageCache.onCheckSaved(1L);
+        PageCache.putUrlPage(1L, new UrlPage(url(1)), generation);
+
+        assertThat(PageCache.getUrlPage(1L)).isNull();
+    }
+
+    @Test
+    void testIndexPageFollowsItsUrls() {
+        var generation = PageCache.generation();
+        var page = new UrlsPage(List.of(url(1), url(2)), Map.of(), null, 2L, 2);
+        PageCache.putIndexPage("a", page, generation);
+        PageCache.onCheckSaved(3L);
+        PageCache.onUrlAdded();
+        assertThat(PageCache.getIndexPage("a")).isSameAs(page);
+
+        PageCache.onCheckSaved(2L);
+        assertThat(PageCache.getIndexPage("a")).isNull();
+    }
+
+    @Test
+    void testNewUrlOnlyDropsLastPage() {
+        var generation = PageCache.generation();
+        var last = new UrlsPage(List.of(url(1)), Map.of(), null, null, 20);
+        PageCache.putIndexPage("last", last, generation);
+        PageCache.onUrlAdded();
+
+        assertThat(PageCache.getIndexPage("last")).isNull();
+    }
+}
@@ -0,0 +1,60 @@
+package hexlet.code.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import hexlet.code.model.UrlCheck;
+
+class SearchIndexTest {
+
+    @BeforeEach
+    void setUp() {
+        SearchIndex.clear();
+    }
+
+    private static void index(long id, long urlId, String title, String h1, String description) {
+        var check = new UrlCheck(200, title, h1, description, urlId);
+        check.setId(id);
+        SearchIndex.onCheckSaved(check);
+    }
+
+    @Test
+    void testTitleOutranksDescription() {
+        index(1, 1, "Other", "", "all about kotlin");
+        index(2, 2, "Kotlin guide", "", "");
+        index(3, 3, "Nothing", "", "here");
+
+        assertThat(SearchIndex.search("kotlin", 10)).extracting(SearchIndex.Hit::urlId).containsExactly(2L, 1L);
+        assertThat(SearchIndex.search("kotlin", 1)).extracting(SearchIndex.Hit::urlId).containsExactly(2L);
+    }
+
+    @Test
+    void testAllTermsMustMatch() {
+        index(1, 1, "Java news", "", "");
+        index(2, 2, "Java jobs", "", "");
+
+        assertThat(SearchIndex.search("java jobs", 10)).extracting(SearchIndex.Hit::urlId).containsExactly(2L);
+        assertThat(SearchIndex.search("java python", 10)).isEmpty();
+    }
+
+    @Test
+    void testNewerCheckReplacesOlder() {
+        index(5, 1, "Old title", "", "");
+        index(6, 1, "New title", "", "");
+        index(4, 1, "Stale title", "", "");
+
+        assertThat(SearchIndex.search("old", 10)).isEmpty();
+        assertThat(SearchIndex.search("stale", 10)).isEmpty();
+        assertThat(SearchIndex.search("new", 10)).hasSize(1);
+        assertThat(SearchIndex.getSize()).isEqualTo(1);
+        assertThat(SearchIndex.getTermCount()).isEqualTo(2);
+    }
+
+    @Test
+    void testTokenizeIgnoresCaseAndPunctuation() {
+        assertThat(SearchIndex.tokenize("Проверка сайтов: ПРОВЕРКА, a b-c", 10))
+            .containsExactly(entry("проверка", 2), entry("сайтов", 1));
+    }
+}
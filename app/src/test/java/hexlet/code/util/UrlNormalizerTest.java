@@ -0,0 +1,22 @@
+package hexlet.code.util;
+
+import java.net.URISyntaxException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+
+class UrlNormalizerTest {
+    @Test
+    void testKeepsSchemeHostAndPort() throws Exception {
+        assertThat(UrlNormalizer.normalize("  HTTPS://Example.com:8443/path?q=1  "))
+            .isEqualTo("https://example.com:8443");
+        assertThat(UrlNormalizer.normalize("http://example.com/")).isEqualTo("http://example.com");
+    }
+
+    @Test
+    void testRejectsMalformedInput() {
+        assertThatThrownBy(() -> UrlNormalizer.normalize("not a url"))
+            .isInstanceOf(URISyntaxException.class);
+    }
+}